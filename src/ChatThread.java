@@ -1,5 +1,3 @@
-import java.util.concurrent.Semaphore;
-
 /**
  * ChatThread implements a runnable task for sending chat messages between students.
  * This class enables concurrent communication by allowing messages to be sent
@@ -10,7 +8,7 @@ public class ChatThread implements Runnable {
     private UniversityStudent sender;
     private UniversityStudent receiver;
     private String message;
-    private static final Semaphore semaphore = new Semaphore(1);
+    private static final String TASK_TYPE = "chat";
 
     /**
      * Constructs a ChatThread with sender, receiver, and message information.
@@ -32,8 +30,16 @@ public class ChatThread implements Runnable {
      */
     @Override
     public void run() {
+        TaskLock.Permit permit;
+        try {
+            permit = TaskLock.forTask(TASK_TYPE).acquire(sender);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Chat interrupted by: " + e.getMessage());
+            return;
+        }
         try {
-            semaphore.acquire();
             String log = sender.name + ": " + message;
 
             System.out.println(log);
@@ -42,12 +48,8 @@ public class ChatThread implements Runnable {
                 Main.executionLogs.add(log);
             }
         }
-        catch(InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("Chat interrupted by: " + e.getMessage());
-        }
         finally {
-            semaphore.release();
+            permit.release();
         }
     }
 }
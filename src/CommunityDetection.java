@@ -0,0 +1,409 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Detects communities of closely connected students in a StudentGraph.
+ * Two algorithms are offered over the weighted adjacency:
+ * parallel label propagation, which is fast and scales with the number of threads, and
+ * Louvain modularity optimisation, which is slower but finds better communities.
+ * Both return a mapping from student to community id, numbered 0..c-1, that can be
+ * handed to PodFormation, JsonExporter and PagedGraphExporter.
+ */
+public class CommunityDetection {
+    public static final int DEFAULT_MAX_ITERATIONS = 20;
+    private static final int CHUNK_SIZE = 1024;
+
+    private StudentGraph graph;
+    private int maxIterations;
+    private int maxLevels;
+    private int parallelism;
+    private int lastIterations;
+
+    /**
+     * Constructs a CommunityDetection over a given student graph.
+     *
+     * @param graph the StudentGraph containing all students and their relationships
+     */
+    public CommunityDetection(StudentGraph graph) {
+        this.graph = graph;
+        this.maxIterations = DEFAULT_MAX_ITERATIONS;
+        this.maxLevels = DEFAULT_MAX_ITERATIONS;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Caps the number of sweeps over the nodes, per level for Louvain.
+     * @param maxIterations the iteration cap, at least 1
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = Math.max(1, maxIterations);
+    }
+
+    /**
+     * Caps the number of aggregation levels Louvain may build.
+     * @param maxLevels the level cap, at least 1
+     */
+    public void setMaxLevels(int maxLevels) {
+        this.maxLevels = Math.max(1, maxLevels);
+    }
+
+    /**
+     * Sets the number of worker threads used by label propagation.
+     * @param parallelism the number of threads, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Returns the number of sweeps the last run performed, summed over levels for Louvain.
+     * @return the iteration count
+     */
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * Runs weighted label propagation. Every student starts in its own community and
+     * repeatedly adopts the label carrying the most edge weight among its neighbours,
+     * keeping its current label on ties. Chunks of students are updated concurrently in
+     * place, so later chunks already see labels adopted earlier in the same sweep.
+     *
+     * @return the community id of every student in the graph
+     */
+    public Map<UniversityStudent, Integer> labelPropagation() {
+        IndexedGraph ig = IndexedGraph.from(graph);
+        int n = ig.size();
+        AtomicIntegerArray labels = new AtomicIntegerArray(n);
+        for(int i=0; i<n; i++) {
+            labels.set(i, i);
+        }
+
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        ThreadLocal<LabelScratch> scratch = ThreadLocal.withInitial(() -> new LabelScratch(n));
+        lastIterations = 0;
+        try {
+            for(int iteration=0; iteration<maxIterations; iteration++) {
+                lastIterations++;
+                List<Callable<Integer>> tasks = new ArrayList<>(chunks);
+                for(int c=0; c<chunks; c++) {
+                    int from = c * CHUNK_SIZE;
+                    int to = Math.min(n, from + CHUNK_SIZE);
+                    tasks.add(() -> propagate(ig, labels, from, to, scratch.get()));
+                }
+                int changed = 0;
+                for(Future<Integer> f : executor.invokeAll(tasks)) {
+                    changed += f.get();
+                }
+                if(changed == 0) {
+                    break;
+                }
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Label propagation interrupted", e);
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException("Label propagation failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        int[] result = new int[n];
+        for(int i=0; i<n; i++) {
+            result[i] = labels.get(i);
+        }
+        return toMapping(ig, result);
+    }
+
+    /**
+     * Per-thread accumulation buffer for label weights.
+     */
+    private static class LabelScratch {
+        final long[] weight;
+        final int[] touched;
+
+        LabelScratch(int n) {
+            weight = new long[n];
+            touched = new int[n];
+        }
+    }
+
+    /**
+     * Updates the labels of students from..to-1 and returns how many changed.
+     */
+    private static int propagate(IndexedGraph ig, AtomicIntegerArray labels, int from, int to, LabelScratch scratch) {
+        int changed = 0;
+        for(int u=from; u<to; u++) {
+            int count = 0;
+            for(int k=ig.neighborStart(u); k<ig.neighborEnd(u); k++) {
+                int label = labels.get(ig.target(k));
+                if(scratch.weight[label] == 0) {
+                    scratch.touched[count++] = label;
+                }
+                scratch.weight[label] += ig.weight(k);
+            }
+            if(count == 0) {
+                continue;
+            }
+
+            int current = labels.get(u);
+            int best = current;
+            long bestWeight = scratch.weight[current];
+            for(int t=0; t<count; t++) {
+                int label = scratch.touched[t];
+                long w = scratch.weight[label];
+                if(w > bestWeight || (w == bestWeight && best != current && label < best)) {
+                    best = label;
+                    bestWeight = w;
+                }
+                scratch.weight[label] = 0;
+            }
+            if(best != current) {
+                labels.set(u, best);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Runs the Louvain method. Students are moved greedily to the neighbouring community
+     * with the largest modularity gain until no move helps, then every community is
+     * collapsed into a single node and the process repeats on the smaller graph.
+     *
+     * @return the community id of every student in the graph
+     */
+    public Map<UniversityStudent, Integer> louvain() {
+        IndexedGraph ig = IndexedGraph.from(graph);
+        int n = ig.size();
+        lastIterations = 0;
+
+        // Level 0 is the student graph itself; self-loop weights are stored as degree contribution.
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[ig.edgeEntries()];
+        double[] weights = new double[ig.edgeEntries()];
+        double[] selfWeight = new double[n];
+        for(int i=0; i<n; i++) {
+            offsets[i + 1] = ig.neighborEnd(i);
+            for(int k=ig.neighborStart(i); k<ig.neighborEnd(i); k++) {
+                targets[k] = ig.target(k);
+                weights[k] = ig.weight(k);
+            }
+        }
+
+        int[] communityOf = new int[n];
+        for(int i=0; i<n; i++) {
+            communityOf[i] = i;
+        }
+
+        int levelSize = n;
+        for(int level=0; level<maxLevels && levelSize > 0; level++) {
+            int[] assignment = moveNodes(levelSize, offsets, targets, weights, selfWeight);
+            int communities = renumber(assignment);
+            for(int i=0; i<n; i++) {
+                communityOf[i] = assignment[communityOf[i]];
+            }
+            if(communities == levelSize) {
+                break;
+            }
+
+            // Collapse every community into one node for the next level.
+            int[][] members = groupMembers(assignment, communities);
+            int[] newOffsets = new int[communities + 1];
+            List<int[]> newTargets = new ArrayList<>(communities);
+            List<double[]> newWeights = new ArrayList<>(communities);
+            double[] newSelf = new double[communities];
+            double[] acc = new double[communities];
+            int[] touched = new int[communities];
+            boolean[] seen = new boolean[communities];
+            for(int c=0; c<communities; c++) {
+                int count = 0;
+                for(int u : members[c]) {
+                    newSelf[c] += selfWeight[u];
+                    for(int k=offsets[u]; k<offsets[u + 1]; k++) {
+                        int d = assignment[targets[k]];
+                        if(d == c) {
+                            newSelf[c] += weights[k];
+                            continue;
+                        }
+                        if(!seen[d]) {
+                            seen[d] = true;
+                            touched[count++] = d;
+                        }
+                        acc[d] += weights[k];
+                    }
+                }
+                int[] t = Arrays.copyOf(touched, count);
+                double[] w = new double[count];
+                for(int j=0; j<count; j++) {
+                    w[j] = acc[t[j]];
+                    acc[t[j]] = 0;
+                    seen[t[j]] = false;
+                }
+                newTargets.add(t);
+                newWeights.add(w);
+                newOffsets[c + 1] = newOffsets[c] + count;
+            }
+            targets = new int[newOffsets[communities]];
+            weights = new double[newOffsets[communities]];
+            for(int c=0; c<communities; c++) {
+                System.arraycopy(newTargets.get(c), 0, targets, newOffsets[c], newTargets.get(c).length);
+                System.arraycopy(newWeights.get(c), 0, weights, newOffsets[c], newWeights.get(c).length);
+            }
+            offsets = newOffsets;
+            selfWeight = newSelf;
+            levelSize = communities;
+        }
+        return toMapping(ig, communityOf);
+    }
+
+    /**
+     * One Louvain local-moving phase over a level graph.
+     *
+     * @return the community of every node of the level graph
+     */
+    private int[] moveNodes(int n, int[] offsets, int[] targets, double[] weights, double[] selfWeight) {
+        double[] degree = new double[n];
+        double totalDegree = 0;
+        for(int i=0; i<n; i++) {
+            degree[i] = selfWeight[i];
+            for(int k=offsets[i]; k<offsets[i + 1]; k++) {
+                degree[i] += weights[k];
+            }
+            totalDegree += degree[i];
+        }
+        int[] community = new int[n];
+        double[] tot = new double[n];
+        for(int i=0; i<n; i++) {
+            community[i] = i;
+            tot[i] = degree[i];
+        }
+        if(totalDegree == 0) {
+            return community;
+        }
+
+        double[] toCommunity = new double[n];
+        int[] touched = new int[n];
+        boolean[] seen = new boolean[n];
+        for(int iteration=0; iteration<maxIterations; iteration++) {
+            lastIterations++;
+            int moves = 0;
+            for(int u=0; u<n; u++) {
+                int own = community[u];
+                int count = 0;
+                seen[own] = true;
+                touched[count++] = own;
+                for(int k=offsets[u]; k<offsets[u + 1]; k++) {
+                    int c = community[targets[k]];
+                    if(!seen[c]) {
+                        seen[c] = true;
+                        touched[count++] = c;
+                    }
+                    toCommunity[c] += weights[k];
+                }
+
+                // Take u out of its community, then put it where the modularity gain is largest.
+                tot[own] -= degree[u];
+                int best = own;
+                double bestGain = toCommunity[own] - tot[own] * degree[u] / totalDegree;
+                for(int t=0; t<count; t++) {
+                    int c = touched[t];
+                    double gain = toCommunity[c] - tot[c] * degree[u] / totalDegree;
+                    if(gain > bestGain + 1e-12) {
+                        best = c;
+                        bestGain = gain;
+                    }
+                    toCommunity[c] = 0;
+                    seen[c] = false;
+                }
+                tot[best] += degree[u];
+                if(best != own) {
+                    community[u] = best;
+                    moves++;
+                }
+            }
+            if(moves == 0) {
+                break;
+            }
+        }
+        return community;
+    }
+
+    /**
+     * Renumbers labels in place to 0..c-1 in order of first appearance and returns c.
+     */
+    private static int renumber(int[] labels) {
+        Map<Integer, Integer> ids = new HashMap<>();
+        for(int i=0; i<labels.length; i++) {
+            Integer id = ids.get(labels[i]);
+            if(id == null) {
+                id = ids.size();
+                ids.put(labels[i], id);
+            }
+            labels[i] = id;
+        }
+        return ids.size();
+    }
+
+    private static int[][] groupMembers(int[] assignment, int communities) {
+        int[] size = new int[communities];
+        for(int c : assignment) {
+            size[c]++;
+        }
+        int[][] members = new int[communities][];
+        for(int c=0; c<communities; c++) {
+            members[c] = new int[size[c]];
+        }
+        int[] fill = new int[communities];
+        for(int i=0; i<assignment.length; i++) {
+            members[assignment[i]][fill[assignment[i]]++] = i;
+        }
+        return members;
+    }
+
+    private static Map<UniversityStudent, Integer> toMapping(IndexedGraph ig, int[] labels) {
+        renumber(labels);
+        Map<UniversityStudent, Integer> mapping = new HashMap<>(labels.length * 2);
+        for(int i=0; i<labels.length; i++) {
+            mapping.put(ig.student(i), labels[i]);
+        }
+        return mapping;
+    }
+
+    /**
+     * Computes the modularity of a community mapping over the graph, between -0.5 and 1.
+     * Higher values mean more weight inside communities than expected at random.
+     *
+     * @param communities the community id of every student
+     * @return the modularity score
+     */
+    public double modularity(Map<UniversityStudent, Integer> communities) {
+        double totalDegree = 0;
+        Map<Integer, Double> internal = new HashMap<>();
+        Map<Integer, Double> tot = new HashMap<>();
+        for(UniversityStudent s : graph.getAllNodes()) {
+            Integer c = communities.get(s);
+            for(StudentGraph.Edge e : graph.getNeighborView(s)) {
+                totalDegree += e.getWeight();
+                tot.merge(c, (double) e.getWeight(), Double::sum);
+                if(c != null && c.equals(communities.get(e.getNeighbor()))) {
+                    internal.merge(c, (double) e.getWeight(), Double::sum);
+                }
+            }
+        }
+        if(totalDegree == 0) {
+            return 0;
+        }
+        double q = 0;
+        for(Map.Entry<Integer, Double> entry : tot.entrySet()) {
+            double share = entry.getValue() / totalDegree;
+            q += internal.getOrDefault(entry.getKey(), 0.0) / totalDegree - share * share;
+        }
+        return q;
+    }
+}
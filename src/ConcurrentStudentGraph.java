@@ -0,0 +1,318 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A student graph that can be queried by many threads while edges are being added.
+ *
+ * Readers never lock: they take the current snapshot, an immutable StudentGraph, and run
+ * any query (referral paths, statistics, export) against it. Writers queue edge mutations,
+ * which are applied in batches copy-on-write style: every student's edges live in one shared
+ * map as an immutable, append-only log, and a batch replaces only the logs of the students it
+ * touches before publishing the new snapshot with a single atomic swap. Each publication
+ * advances the epoch by one, and the snapshot reports that epoch as its version. Every edge
+ * and student is stamped with the epoch it was published in, so a snapshot keeps seeing the
+ * graph as of its own epoch while later batches are applied, and publishing a batch costs time
+ * proportional to the edges of the touched students rather than to the size of the graph.
+ */
+public class ConcurrentStudentGraph {
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final ConcurrentHashMap<UniversityStudent, EdgeLog> logs;
+    private final AtomicReference<StudentGraph> current;
+    private final ConcurrentLinkedQueue<PendingEdge> pending;
+    private final AtomicInteger pendingCount;
+    private final ReentrantLock writeLock;
+    private final int batchSize;
+    private volatile long epoch;
+    private int nodeCount;
+
+    /**
+     * An edge waiting to be applied by the next flush.
+     */
+    private static class PendingEdge {
+        final UniversityStudent student;
+        final UniversityStudent neighborStudent;
+        final int weight;
+
+        PendingEdge(UniversityStudent student, UniversityStudent neighborStudent, int weight) {
+            this.student = student;
+            this.neighborStudent = neighborStudent;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * The edges of one student up to some epoch. Edges are only ever appended, in epoch order,
+     * so the edges visible at an epoch are a prefix of the log. Logs are never modified once
+     * published; appending creates a new log.
+     */
+    private static class EdgeLog {
+        final StudentGraph.Edge[] edges;
+        final long[] epochs;
+        final long firstEpoch;
+
+        EdgeLog(StudentGraph.Edge[] edges, long[] epochs, long firstEpoch) {
+            this.edges = edges;
+            this.epochs = epochs;
+            this.firstEpoch = firstEpoch;
+        }
+
+        /**
+         * Returns a new log with the given edges appended, all stamped with the given epoch.
+         */
+        static EdgeLog append(EdgeLog log, List<StudentGraph.Edge> added, long epoch) {
+            int size = log == null ? 0 : log.edges.length;
+            StudentGraph.Edge[] edges = log == null ? new StudentGraph.Edge[added.size()] : Arrays.copyOf(log.edges, size + added.size());
+            long[] epochs = log == null ? new long[added.size()] : Arrays.copyOf(log.epochs, size + added.size());
+            for(int k=0; k<added.size(); k++) {
+                edges[size + k] = added.get(k);
+                epochs[size + k] = epoch;
+            }
+            return new EdgeLog(edges, epochs, log == null ? epoch : log.firstEpoch);
+        }
+
+        /**
+         * Returns how many edges had been published by the given epoch.
+         */
+        int visible(long epoch) {
+            int lo = 0;
+            int hi = epochs.length;
+            while(lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if(epochs[mid] <= epoch) {
+                    lo = mid + 1;
+                }
+                else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * A read-only view of the shared logs as of one epoch. Students and edges published
+     * by later batches are filtered out, so the view never changes.
+     */
+    private static class Snapshot extends StudentGraph {
+        private final Map<UniversityStudent, EdgeLog> logs;
+        private final long epoch;
+        private final Set<UniversityStudent> nodes;
+
+        Snapshot(Map<UniversityStudent, EdgeLog> logs, long epoch, int nodeCount) {
+            super(Collections.<UniversityStudent, List<StudentGraph.Edge>>emptyMap(), epoch);
+            this.logs = logs;
+            this.epoch = epoch;
+            this.nodes = new AbstractSet<UniversityStudent>() {
+                @Override
+                public Iterator<UniversityStudent> iterator() {
+                    Iterator<Map.Entry<UniversityStudent, EdgeLog>> entries = logs.entrySet().iterator();
+                    return new Iterator<UniversityStudent>() {
+                        private UniversityStudent next = advance();
+
+                        private UniversityStudent advance() {
+                            while(entries.hasNext()) {
+                                Map.Entry<UniversityStudent, EdgeLog> e = entries.next();
+                                if(e.getValue().firstEpoch <= epoch) {
+                                    return e.getKey();
+                                }
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public UniversityStudent next() {
+                            if(next == null) {
+                                throw new NoSuchElementException();
+                            }
+                            UniversityStudent s = next;
+                            next = advance();
+                            return s;
+                        }
+                    };
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    EdgeLog log = o instanceof UniversityStudent ? logs.get(o) : null;
+                    return log != null && log.firstEpoch <= epoch;
+                }
+
+                @Override
+                public int size() {
+                    return nodeCount;
+                }
+            };
+        }
+
+        @Override
+        public List<StudentGraph.Edge> getNeighbors(UniversityStudent student) {
+            List<StudentGraph.Edge> view = getNeighborView(student);
+            return view == null ? null : new ArrayList<>(view);
+        }
+
+        @Override
+        public List<StudentGraph.Edge> getNeighborView(UniversityStudent student) {
+            EdgeLog log = student == null ? null : logs.get(student);
+            if(log == null || log.firstEpoch > epoch) {
+                return null;
+            }
+            return Collections.unmodifiableList(Arrays.asList(log.edges).subList(0, log.visible(epoch)));
+        }
+
+        @Override
+        public Set<UniversityStudent> getAllNodes() {
+            return nodes;
+        }
+
+        @Override
+        Map<UniversityStudent, List<StudentGraph.Edge>> adjacency() {
+            throw new UnsupportedOperationException("A concurrent graph snapshot has no adjacency map");
+        }
+    }
+
+    /**
+     * Constructs a concurrent graph from a list of students with edges based on connection strength.
+     *
+     * @param students the list of students to add to the graph
+     */
+    public ConcurrentStudentGraph(List<UniversityStudent> students) {
+        this(new StudentGraph(students), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a concurrent graph starting from a copy of an existing graph.
+     * The source graph is not retained and may keep changing independently.
+     *
+     * @param initial the graph to copy
+     * @param batchSize how many queued edges trigger an automatic flush
+     */
+    public ConcurrentStudentGraph(StudentGraph initial, int batchSize) {
+        this.logs = new ConcurrentHashMap<>();
+        for(UniversityStudent s : initial.getAllNodes()) {
+            List<StudentGraph.Edge> edges = initial.getNeighborView(s);
+            logs.put(s, new EdgeLog(edges.toArray(new StudentGraph.Edge[0]), new long[edges.size()], 0));
+        }
+        this.nodeCount = logs.size();
+        this.current = new AtomicReference<>(new Snapshot(logs, 0, nodeCount));
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.pendingCount = new AtomicInteger();
+        this.writeLock = new ReentrantLock();
+        this.batchSize = Math.max(1, batchSize);
+        this.epoch = 0;
+    }
+
+    /**
+     * Returns the latest published snapshot. The snapshot never changes, so every query run
+     * against it sees one consistent graph no matter what writers do meanwhile.
+     *
+     * @return the current read-only graph
+     */
+    public StudentGraph snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Returns the number of batches published so far.
+     * @return the current epoch
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the number of queued edges not yet visible to readers.
+     * @return the pending edge count
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Queues an undirected edge between two students. The edge becomes visible with the
+     * next flush, which happens automatically once a full batch has been queued.
+     *
+     * @param student one student object
+     * @param neighborStudent another student object which is a neighbor of the other student
+     * @param weight edge weight
+     */
+    public void addEdge(UniversityStudent student, UniversityStudent neighborStudent, int weight) {
+        if(student == null || neighborStudent == null) {
+            return;
+        }
+        pending.add(new PendingEdge(student, neighborStudent, weight));
+        if(pendingCount.incrementAndGet() >= batchSize && writeLock.tryLock()) {
+            // Only one writer flushes; others keep queueing instead of waiting on the lock.
+            try {
+                applyPending();
+            }
+            finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies every queued edge and publishes the resulting snapshot.
+     *
+     * @return the epoch of the snapshot visible after the flush
+     */
+    public long flush() {
+        writeLock.lock();
+        try {
+            applyPending();
+            return epoch;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Drains the queue into a new snapshot. Must be called with the write lock held.
+     * Only the logs of students touched by the batch are copied.
+     */
+    private void applyPending() {
+        if(pending.isEmpty()) {
+            return;
+        }
+        long next = epoch + 1;
+        Map<UniversityStudent, List<StudentGraph.Edge>> added = new LinkedHashMap<>();
+        PendingEdge edge;
+        while((edge = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            added.computeIfAbsent(edge.student, s -> new ArrayList<>()).add(new StudentGraph.Edge(edge.neighborStudent, edge.weight));
+            added.computeIfAbsent(edge.neighborStudent, s -> new ArrayList<>()).add(new StudentGraph.Edge(edge.student, edge.weight));
+        }
+        for(Map.Entry<UniversityStudent, List<StudentGraph.Edge>> e : added.entrySet()) {
+            EdgeLog log = logs.get(e.getKey());
+            if(log == null) {
+                nodeCount++;
+            }
+            logs.put(e.getKey(), EdgeLog.append(log, e.getValue(), next));
+        }
+        epoch = next;
+        current.set(new Snapshot(logs, next, nodeCount));
+    }
+
+    /**
+     * Finds a referral path on the current snapshot. Safe to call from any number of threads
+     * while edges are being added.
+     *
+     * @param start the UniversityStudent to start the search from
+     * @param targetCompany the name of the company to find referral contacts for
+     * @return a list of students representing the referral path, or an empty list if no path exists
+     */
+    public List<UniversityStudent> findReferralPath(UniversityStudent start, String targetCompany) {
+        return new ReferralPathFinder(snapshot()).findReferralPath(start, targetCompany);
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free disjoint-set forest over the integers 0..n-1.
+ * Many threads may call union and find concurrently. Roots are linked by index (the
+ * larger root always points at the smaller one) with compare-and-set, and find compresses
+ * paths by halving, so no thread ever blocks another.
+ */
+public class ConcurrentUnionFind {
+    private final AtomicIntegerArray parent;
+
+    /**
+     * Constructs a forest of n singleton sets.
+     *
+     * @param n the number of elements
+     */
+    public ConcurrentUnionFind(int n) {
+        parent = new AtomicIntegerArray(n);
+        for(int i=0; i<n; i++) {
+            parent.set(i, i);
+        }
+    }
+
+    /**
+     * Constructs a forest of n elements that starts as a copy of another forest.
+     * Elements beyond the size of the source start as singletons.
+     *
+     * @param source the forest to copy
+     * @param n the number of elements, at least source.size()
+     */
+    public ConcurrentUnionFind(ConcurrentUnionFind source, int n) {
+        parent = new AtomicIntegerArray(n);
+        for(int i=0; i<n; i++) {
+            parent.set(i, i < source.size() ? source.parent.get(i) : i);
+        }
+    }
+
+    public int size() {
+        return parent.length();
+    }
+
+    /**
+     * Returns the representative of the set containing x.
+     *
+     * @param x the element
+     * @return the root of its set
+     */
+    public int find(int x) {
+        while(true) {
+            int p = parent.get(x);
+            if(p == x) {
+                return x;
+            }
+            int grandparent = parent.get(p);
+            if(grandparent != p) {
+                parent.compareAndSet(x, p, grandparent);
+            }
+            x = grandparent;
+        }
+    }
+
+    /**
+     * Merges the sets containing a and b.
+     *
+     * @param a one element
+     * @param b another element
+     * @return the root of the merged set, or -1 if a and b were already in the same set
+     */
+    public int union(int a, int b) {
+        while(true) {
+            int ra = find(a);
+            int rb = find(b);
+            if(ra == rb) {
+                return -1;
+            }
+            int low = Math.min(ra, rb);
+            int high = Math.max(ra, rb);
+            if(parent.compareAndSet(high, high, low)) {
+                return low;
+            }
+        }
+    }
+
+    /**
+     * Tells whether two elements are in the same set.
+     *
+     * @param a one element
+     * @param b another element
+     * @return true if a and b share a root
+     */
+    public boolean connected(int a, int b) {
+        while(true) {
+            int ra = find(a);
+            int rb = find(b);
+            if(ra == rb) {
+                return true;
+            }
+            // ra may have been linked under another root in the meantime; retry until stable.
+            if(parent.get(ra) == ra) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,401 @@
+import java.util.*;
+
+/**
+ * Scores connection strength over columnar copies of the student attributes, so one student
+ * can be scored against a whole block of candidates in a tight loop instead of one virtual
+ * calculateConnectionStrength call per pair.
+ *
+ * Ages are kept in an int[], majors and roommates as int codes, and internships as
+ * dictionary-encoded company codes: a fixed-width bitset per student when there are few
+ * distinct companies, or a sorted code list per student otherwise. The block loops have no
+ * object access and no calls, which lets the JIT unroll and auto-vectorise them.
+ *
+ * With the default weights the score of (i, j) equals students i and j's
+ * calculateConnectionStrength, including duplicate internships being counted once per
+ * occurrence in student i's list. Attributes are copied when a student is added, so
+ * roommates must be assigned before the scorer is built.
+ */
+public class ConnectionScorer {
+    /**
+     * Points awarded per matching attribute.
+     */
+    public static final class Weights {
+        public static final Weights DEFAULT = new Weights(4, 3, 2, 1);
+
+        private final int roommate;
+        private final int sharedInternship;
+        private final int sameMajor;
+        private final int sameAge;
+
+        /**
+         * Constructs a weight set.
+         *
+         * @param roommate points if the students are roommates
+         * @param sharedInternship points per shared internship
+         * @param sameMajor points if the students share a major
+         * @param sameAge points if the students are the same age
+         */
+        public Weights(int roommate, int sharedInternship, int sameMajor, int sameAge) {
+            this.roommate = roommate;
+            this.sharedInternship = sharedInternship;
+            this.sameMajor = sameMajor;
+            this.sameAge = sameAge;
+        }
+
+        public int getRoommate() {
+            return roommate;
+        }
+
+        public int getSharedInternship() {
+            return sharedInternship;
+        }
+
+        public int getSameMajor() {
+            return sameMajor;
+        }
+
+        public int getSameAge() {
+            return sameAge;
+        }
+
+        @Override
+        public String toString() {
+            return "roommate=" + roommate + ", sharedInternship=" + sharedInternship
+                    + ", sameMajor=" + sameMajor + ", sameAge=" + sameAge;
+        }
+    }
+
+    /** Internship bitsets are used while every student fits in this many 64-bit words. */
+    public static final int MAX_BITSET_WORDS = 8;
+
+    private final Weights weights;
+    private final Map<UniversityStudent, Integer> indexOf = new IdentityHashMap<>();
+    private final Map<String, Integer> majorCodes = new HashMap<>();
+    private final Map<String, Integer> companyCodes = new HashMap<>();
+    private final Map<UniversityStudent, List<Integer>> awaitingRoommate = new IdentityHashMap<>();
+    private final List<UniversityStudent> students = new ArrayList<>();
+
+    private int size;
+    private boolean hasDuplicates;
+    private int[] age = new int[16];
+    private int[] major = new int[16];
+    private int[] canonical = new int[16];
+    private int[] roommate = new int[16];
+    // Internship lists as company codes in list order, duplicates kept: CSR over listStart.
+    private int[] listStart = new int[17];
+    private int[] listCodes = new int[16];
+    // Membership sets: bitsets of `words` longs per student, or sorted distinct codes per student.
+    private int words;
+    private long[] bits;
+    private int[][] sortedCodes = new int[16][];
+
+    /**
+     * Constructs a scorer over a list of students.
+     *
+     * @param students the students to index, in index order
+     * @param weights the points awarded per matching attribute
+     */
+    public ConnectionScorer(List<UniversityStudent> students, Weights weights) {
+        this.weights = weights == null ? Weights.DEFAULT : weights;
+        if(students != null) {
+            for(UniversityStudent s : students) {
+                for(String company : internshipsOf(s)) {
+                    companyCodes.putIfAbsent(company, companyCodes.size());
+                }
+            }
+            for(UniversityStudent s : students) {
+                add(s);
+            }
+        }
+    }
+
+    /**
+     * Constructs a scorer straight from the columns of a student table, reusing its major
+     * and company dictionary codes. Student i of the scorer is the view of table row i.
+     *
+     * @param table the table to index
+     * @param weights the points awarded per matching attribute
+     */
+    public ConnectionScorer(StudentTable table, Weights weights) {
+        this.weights = weights == null ? Weights.DEFAULT : weights;
+        int n = table.size();
+        List<UniversityStudent> views = table.views();
+        ensureCapacity(Math.max(1, n));
+        StudentTable.Dictionary majors = table.getMajors();
+        for(int c=0; c<majors.size(); c++) {
+            majorCodes.put(majors.decode(c), c);
+        }
+        StudentTable.Dictionary companies = table.getCompanies();
+        for(int c=0; c<companies.size(); c++) {
+            companyCodes.put(companies.decode(c), c);
+        }
+
+        int pos = 0;
+        for(int id=0; id<n; id++) {
+            students.add(views.get(id));
+            indexOf.put(views.get(id), id);
+            canonical[id] = id;
+            age[id] = table.age(id);
+            major[id] = table.majorCode(id);
+            roommate[id] = table.roommate(id);
+            int count = table.internshipCount(id);
+            if(listCodes.length < pos + count) {
+                listCodes = Arrays.copyOf(listCodes, Math.max(listCodes.length * 2, pos + count));
+            }
+            for(int k=0; k<count; k++) {
+                listCodes[pos++] = table.internshipCode(id, k);
+            }
+            listStart[id + 1] = pos;
+        }
+        size = n;
+        rebuildSets((companyCodes.size() + 63) >>> 6);
+    }
+
+    public Weights getWeights() {
+        return weights;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the first occurrence of a student, or -1 if it was never added.
+     * @param s the student to look up
+     * @return the index of the student
+     */
+    public int indexOf(UniversityStudent s) {
+        Integer i = indexOf.get(s);
+        return i == null ? -1 : i;
+    }
+
+    public UniversityStudent student(int i) {
+        return students.get(i);
+    }
+
+    /**
+     * Appends a student to the columns.
+     *
+     * @param s the student to add
+     * @return the index of the new entry
+     */
+    public int add(UniversityStudent s) {
+        int i = size;
+        ensureCapacity(i + 1);
+        students.add(s);
+        Integer first = indexOf.putIfAbsent(s, i);
+        canonical[i] = first == null ? i : first;
+        hasDuplicates |= first != null;
+        age[i] = s.age;
+        major[i] = majorCodes.computeIfAbsent(s.major, m -> majorCodes.size());
+
+        // Roommate links are resolved in both directions as students arrive.
+        UniversityStudent mate = s.getRoommate();
+        Integer mateIndex = mate == null ? null : indexOf.get(mate);
+        roommate[i] = mateIndex == null ? -1 : mateIndex;
+        if(mate != null && mateIndex == null) {
+            awaitingRoommate.computeIfAbsent(mate, m -> new ArrayList<>()).add(i);
+        }
+        if(first == null) {
+            List<Integer> waiting = awaitingRoommate.remove(s);
+            if(waiting != null) {
+                for(int w : waiting) {
+                    roommate[w] = i;
+                }
+            }
+        }
+
+        List<String> internships = internshipsOf(s);
+        boolean grew = false;
+        int pos = listStart[i];
+        if(listCodes.length < pos + internships.size()) {
+            listCodes = Arrays.copyOf(listCodes, Math.max(listCodes.length * 2, pos + internships.size()));
+        }
+        for(String company : internships) {
+            Integer code = companyCodes.get(company);
+            if(code == null) {
+                code = companyCodes.size();
+                companyCodes.put(company, code);
+                grew = true;
+            }
+            listCodes[pos++] = code;
+        }
+        listStart[i + 1] = pos;
+        size = i + 1;
+
+        int needed = (companyCodes.size() + 63) >>> 6;
+        if(bits == null || grew && needed > words && words <= MAX_BITSET_WORDS) {
+            rebuildSets(needed);
+        }
+        else {
+            words = Math.max(words, needed);
+            indexSet(i);
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index of the roommate recorded for an entry.
+     * @param i the entry index
+     * @return the roommate index, or -1 if none was recorded
+     */
+    public int roommateOf(int i) {
+        return roommate[i];
+    }
+
+    /**
+     * Re-reads the roommate of an entry from its student, for roommates assigned after the
+     * student was added. A roommate that is not in the scorer is recorded as none.
+     *
+     * @param i the entry index
+     * @return the roommate index recorded before the update
+     */
+    public int updateRoommate(int i) {
+        int previous = roommate[i];
+        UniversityStudent mate = students.get(i).getRoommate();
+        Integer mateIndex = mate == null ? null : indexOf.get(mate);
+        roommate[i] = mateIndex == null ? -1 : mateIndex;
+        return previous;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity <= age.length) {
+            return;
+        }
+        int grown = Math.max(capacity, age.length * 2);
+        age = Arrays.copyOf(age, grown);
+        major = Arrays.copyOf(major, grown);
+        canonical = Arrays.copyOf(canonical, grown);
+        roommate = Arrays.copyOf(roommate, grown);
+        listStart = Arrays.copyOf(listStart, grown + 1);
+        sortedCodes = Arrays.copyOf(sortedCodes, grown);
+        if(bits != null && words <= MAX_BITSET_WORDS) {
+            bits = Arrays.copyOf(bits, grown * words);
+        }
+    }
+
+    /**
+     * Re-encodes every membership set after the company dictionary outgrew the bitset width.
+     */
+    private void rebuildSets(int needed) {
+        words = Math.max(1, needed);
+        bits = words <= MAX_BITSET_WORDS ? new long[age.length * words] : new long[0];
+        for(int i=0; i<size; i++) {
+            indexSet(i);
+        }
+    }
+
+    private void indexSet(int i) {
+        if(words <= MAX_BITSET_WORDS) {
+            int base = i * words;
+            Arrays.fill(bits, base, base + words, 0L);
+            for(int p=listStart[i]; p<listStart[i + 1]; p++) {
+                int c = listCodes[p];
+                bits[base + (c >>> 6)] |= 1L << c;
+            }
+        }
+        else {
+            int[] codes = Arrays.copyOfRange(listCodes, listStart[i], listStart[i + 1]);
+            Arrays.sort(codes);
+            sortedCodes[i] = codes;
+        }
+    }
+
+    private static List<String> internshipsOf(UniversityStudent s) {
+        return s.previousInternships == null ? Collections.emptyList() : s.previousInternships;
+    }
+
+    /**
+     * Scores one pair.
+     *
+     * @param i the index of the student whose internship list is counted
+     * @param j the index of the other student
+     * @return the connection strength
+     */
+    public int score(int i, int j) {
+        int strength = 0;
+        if(roommate[i] == canonical[j]) {
+            strength += weights.roommate;
+        }
+        int shared = 0;
+        for(int p=listStart[i]; p<listStart[i + 1]; p++) {
+            if(contains(j, listCodes[p])) {
+                shared++;
+            }
+        }
+        strength += shared * weights.sharedInternship;
+        if(major[i] == major[j]) {
+            strength += weights.sameMajor;
+        }
+        if(age[i] == age[j]) {
+            strength += weights.sameAge;
+        }
+        return strength;
+    }
+
+    private boolean contains(int j, int code) {
+        if(words <= MAX_BITSET_WORDS) {
+            return (bits[j * words + (code >>> 6)] & (1L << code)) != 0;
+        }
+        return Arrays.binarySearch(sortedCodes[j], code) >= 0;
+    }
+
+    /**
+     * Scores student i against every candidate in [from, to).
+     *
+     * @param i the index of the student being scored
+     * @param from the first candidate index, inclusive
+     * @param to the last candidate index, exclusive
+     * @param out receives the score of candidate j at out[j - from]
+     */
+    public void scoreBlock(int i, int from, int to, int[] out) {
+        int n = to - from;
+        int myAge = age[i];
+        int myMajor = major[i];
+        int ageWeight = weights.sameAge;
+        int majorWeight = weights.sameMajor;
+        for(int k=0; k<n; k++) {
+            int j = from + k;
+            out[k] = (age[j] == myAge ? ageWeight : 0) + (major[j] == myMajor ? majorWeight : 0);
+        }
+
+        int internshipWeight = weights.sharedInternship;
+        for(int p=listStart[i]; p<listStart[i + 1]; p++) {
+            int code = listCodes[p];
+            if(words <= MAX_BITSET_WORDS) {
+                int word = code >>> 6;
+                int shift = code & 63;
+                long[] b = bits;
+                int stride = words;
+                for(int k=0; k<n; k++) {
+                    out[k] += (int) ((b[(from + k) * stride + word] >>> shift) & 1L) * internshipWeight;
+                }
+            }
+            else {
+                for(int k=0; k<n; k++) {
+                    if(Arrays.binarySearch(sortedCodes[from + k], code) >= 0) {
+                        out[k] += internshipWeight;
+                    }
+                }
+            }
+        }
+
+        // The roommate is a single index unless the same student was added more than once,
+        // so patch it directly instead of testing every candidate.
+        int mate = roommate[i];
+        if(mate < 0) {
+            return;
+        }
+        if(!hasDuplicates) {
+            if(mate >= from && mate < to) {
+                out[mate - from] += weights.roommate;
+            }
+            return;
+        }
+        for(int j=Math.max(from, mate); j<to; j++) {
+            if(canonical[j] == mate) {
+                out[j - from] += weights.roommate;
+            }
+        }
+    }
+}
@@ -7,6 +7,9 @@ import java.util.*;
  * and convert it into UniversityStudent objects.
  */
 public class DataParser {
+    private static final Metrics.Histogram PARSE_TIME = Metrics.histogram("parser.file.ns");
+    private static final Metrics.Counter STUDENTS_PARSED = Metrics.counter("parser.students");
+
     /**
      * Parses student data from a file and creates UniversityStudent objects.
      * Expected file format: Each line contains student data with fields separated by commas.
@@ -16,18 +19,127 @@ public class DataParser {
      * @throws IOException if the file cannot be read or accessed
      */
     public static List<UniversityStudent> parseStudents(String filename) throws IOException {
+        long startTime = Metrics.startTimer();
         List<UniversityStudent> students = new ArrayList<>();
+        forEachBlock(filename, block -> students.add(parseStudentBlock(block)));
+        STUDENTS_PARSED.add(students.size());
+        PARSE_TIME.recordSince(startTime);
+        return students;
+    }
+
+    /**
+     * Receives parsed students one at a time, in file order.
+     */
+    public interface StudentHandler {
+        void accept(UniversityStudent student) throws IOException;
+    }
+
+    /**
+     * Parses student data from a file and hands each student to the handler as soon as its
+     * block is read, so a consumer can start work before the whole file is parsed.
+     *
+     * @param filename the path to the file containing student data
+     * @param handler the receiver of every parsed student
+     * @return the number of students parsed
+     * @throws IOException if the file cannot be read or accessed, or the handler fails
+     */
+    public static int parseStudents(String filename, StudentHandler handler) throws IOException {
+        long startTime = Metrics.startTimer();
+        int[] count = new int[1];
+        forEachBlock(filename, block -> {
+            handler.accept(parseStudentBlock(block));
+            count[0]++;
+        });
+        STUDENTS_PARSED.add(count[0]);
+        PARSE_TIME.recordSince(startTime);
+        return count[0];
+    }
+
+    /**
+     * Parses student data from a file straight into a columnar StudentTable, without
+     * creating a UniversityStudent per record. Accepts the same format as parseStudents.
+     *
+     * @param filename the path to the file containing student data
+     * @return a table holding every parsed student in file order
+     * @throws IOException if the file cannot be read or accessed
+     */
+    public static StudentTable parseStudentTable(String filename) throws IOException {
+        long startTime = Metrics.startTimer();
+        StudentTable table = new StudentTable();
+        forEachBlock(filename, block -> {
+            StudentFields f = parseStudentFields(block);
+            table.add(f.name, f.age, f.gender, f.year, f.major, f.gpa, f.roommateList, f.internshipList);
+        });
+        STUDENTS_PARSED.add(table.size());
+        PARSE_TIME.recordSince(startTime);
+        return table;
+    }
+
+    /**
+     * Reads a binary dataset written by SyntheticDataGenerator.writeBinary into a StudentTable.
+     *
+     * @param filename the path to the binary dataset
+     * @return a table holding every student in file order
+     * @throws IOException if the file cannot be read or is not a binary dataset
+     */
+    public static StudentTable parseBinaryStudentTable(String filename) throws IOException {
+        long startTime = Metrics.startTimer();
+        StudentTable table = new StudentTable();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename), 1 << 16))) {
+            if (in.readInt() != SyntheticDataGenerator.BINARY_MAGIC) {
+                throw new IOException("Not a binary student dataset: " + filename);
+            }
+            int version = in.readInt();
+            if (version != SyntheticDataGenerator.BINARY_VERSION) {
+                throw new IOException("Unsupported binary dataset version: " + version);
+            }
+            int count = in.readInt();
+            List<String> roommateList = new ArrayList<>();
+            List<String> internshipList = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int age = in.readInt();
+                String gender = in.readUTF();
+                int year = in.readInt();
+                String major = in.readUTF();
+                double gpa = in.readDouble();
+                roommateList.clear();
+                for (int k = in.readInt(); k > 0; k--) {
+                    roommateList.add(in.readUTF());
+                }
+                internshipList.clear();
+                for (int k = in.readInt(); k > 0; k--) {
+                    internshipList.add(in.readUTF());
+                }
+                table.add(name, age, gender, year, major, gpa, roommateList, internshipList);
+            }
+        }
+        STUDENTS_PARSED.add(table.size());
+        PARSE_TIME.recordSince(startTime);
+        return table;
+    }
 
+    /**
+     * Receives the lines of one student block.
+     */
+    private interface BlockHandler {
+        void accept(List<String> block) throws IOException;
+    }
+
+    /**
+     * Splits a file into blank-line separated student blocks and hands each one to the handler.
+     */
+    private static void forEachBlock(String filename, BlockHandler handler) throws IOException {
         // Open the file to read using BufferedReader.
         try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
             String line;
 
-            // Divide each "student block" up and call parseStudentBlock().
+            // Divide each "student block" up and hand it over.
             List<String> block = new ArrayList<>();
             while ((line = br.readLine()) != null) {
                 if (line.trim().isEmpty()) {
                     if (!block.isEmpty()) {
-                        students.add(parseStudentBlock(block));
+                        handler.accept(block);
                         block.clear();
                     }
                 }
@@ -38,11 +150,23 @@ public class DataParser {
 
             // Handle the last "student block".
             if (!block.isEmpty()) {
-                students.add(parseStudentBlock(block));
+                handler.accept(block);
             }
         }
+    }
 
-        return students;
+    /**
+     * The validated fields of one student block.
+     */
+    private static final class StudentFields {
+        String name;
+        int age;
+        String gender;
+        int year;
+        String major;
+        double gpa;
+        List<String> roommateList;
+        List<String> internshipList;
     }
 
     /**
@@ -53,6 +177,18 @@ public class DataParser {
      * @throws IOException if the fields cannot be read or accessed
      */
     private static UniversityStudent parseStudentBlock(List<String> lines) throws IOException {
+        StudentFields f = parseStudentFields(lines);
+        return new UniversityStudent(f.name, f.age, f.gender, f.year, f.major, f.gpa, f.roommateList, f.internshipList);
+    }
+
+    /**
+     * Parse and validate the fields of a block of lines that describe a single student.
+     *
+     * @param lines the non-empty lines describing one student
+     * @return the parsed fields
+     * @throws IOException if a required field is missing or malformed
+     */
+    private static StudentFields parseStudentFields(List<String> lines) throws IOException {
         // Organize student parameters with a HashMap.
         Map<String, String> map = new HashMap<>();
         for (String raw : lines) {
@@ -124,6 +260,15 @@ public class DataParser {
             }
         }
 
-        return new UniversityStudent(name, age, gender, year, major, gpa, roommateList, internshipList);
+        StudentFields f = new StudentFields();
+        f.name = name;
+        f.age = age;
+        f.gender = gender;
+        f.year = year;
+        f.major = major;
+        f.gpa = gpa;
+        f.roommateList = roommateList;
+        f.internshipList = internshipList;
+        return f;
     }
 }
@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Build and query benchmark for DiskStudentGraph on a synthetic cohort whose graph would not
+ * fit in the heap as an in-memory StudentGraph.
+ *
+ * Students come from SyntheticDataGenerator. Edges are streamed straight into a
+ * DiskStudentGraph.Builder: every student is scored against the next few students (its
+ * friend group) and then against distinct random students until about edgesPerStudent / 2
+ * pairs with a positive score were added, so the average degree is about edgesPerStudent.
+ * The report compares the estimated heap footprint of the same graph as
+ * HashMap&lt;UniversityStudent, List&lt;Edge&gt;&gt; with the maximum heap, then times neighbour
+ * lookups with a cold and a warm hot-node cache, referral queries with ReferralPathFinder
+ * and a full GraphStatistics pass, all through the unchanged StudentGraph API.
+ *
+ * Usage: java -Xmx512m DiskGraphBenchmark &lt;students&gt; &lt;graphFile&gt; [edgesPerStudent] [referralQueries]
+ */
+public class DiskGraphBenchmark {
+    // Edge object plus its ArrayList slot, and the per-student HashMap node, ArrayList and array headers.
+    private static final int HEAP_BYTES_PER_EDGE_ENTRY = 28;
+    private static final int HEAP_BYTES_PER_STUDENT = 80;
+    private static final int LOOKUPS = 200000;
+    // Friend groups are generated with consecutive ids, so each student is scored against the next few.
+    private static final int FRIEND_WINDOW = 4;
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("Usage: java DiskGraphBenchmark <students> <graphFile> [edgesPerStudent] [referralQueries]");
+            return;
+        }
+        int count = Integer.parseInt(args[0]);
+        String file = args[1];
+        int edgesPerStudent = args.length > 2 ? Integer.parseInt(args[2]) : 48;
+        int referralQueries = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        boolean metricsWereEnabled = Metrics.isEnabled();
+        Metrics.setEnabled(true);
+        try {
+            run(count, file, edgesPerStudent, referralQueries);
+        }
+        finally {
+            Metrics.setEnabled(metricsWereEnabled);
+        }
+    }
+
+    private static void run(int count, String file, int edgesPerStudent, int referralQueries) throws IOException {
+        long start = System.nanoTime();
+        StudentTable table = new SyntheticDataGenerator(42).generateTable(count);
+        List<UniversityStudent> students = table.views();
+        System.out.printf(Locale.ROOT, "generated %d students in %.1f s%n", count, (System.nanoTime() - start) / 1e9);
+
+        DiskStudentGraph graph;
+        start = System.nanoTime();
+        long layoutStart;
+        try (DiskStudentGraph.Builder builder = new DiskStudentGraph.Builder(students, file)) {
+            ConnectionScorer scorer = new ConnectionScorer(table, ConnectionScorer.Weights.DEFAULT);
+            Random random = new Random(7);
+            int wanted = Math.max(1, edgesPerStudent / 2);
+            // Random partners already tried for the current student, kept sorted for binary search.
+            int[] picked = new int[4 * wanted];
+            for(int i=0; i<count; i++) {
+                int added = 0;
+                int pickedCount = 0;
+                for(int j=i+1; j<=i+FRIEND_WINDOW && j<count; j++) {
+                    int weight = scorer.score(i, j);
+                    if(weight > 0) {
+                        builder.addEdge(i, j, weight);
+                        added++;
+                    }
+                }
+                for(int attempt=0; attempt<4*wanted && added<wanted; attempt++) {
+                    int j = random.nextInt(count);
+                    int slot = Arrays.binarySearch(picked, 0, pickedCount, j);
+                    if(slot >= 0) {
+                        continue;
+                    }
+                    slot = -slot - 1;
+                    System.arraycopy(picked, slot, picked, slot + 1, pickedCount - slot);
+                    picked[slot] = j;
+                    pickedCount++;
+                    int weight = j > i + FRIEND_WINDOW ? scorer.score(i, j) : 0;
+                    if(weight > 0) {
+                        builder.addEdge(i, j, weight);
+                        added++;
+                    }
+                }
+            }
+            // The scorer's columns are not needed for the layout pass.
+            scorer = null;
+            layoutStart = System.nanoTime();
+            graph = builder.build();
+        }
+        long built = System.nanoTime();
+        System.out.printf(Locale.ROOT, "streamed edges in %.1f s, laid out file in %.1f s%n",
+                (layoutStart - start) / 1e9, (built - layoutStart) / 1e9);
+
+        try {
+            report(graph, referralQueries);
+        }
+        finally {
+            graph.close();
+        }
+    }
+
+    private static void report(DiskStudentGraph graph, int referralQueries) {
+        int n = graph.size();
+        long entries = graph.edgeEntries();
+        long heapEstimate = entries * HEAP_BYTES_PER_EDGE_ENTRY + (long) n * HEAP_BYTES_PER_STUDENT;
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        System.out.printf(Locale.ROOT, "%d students, %d edges, file %.0f MB%n", n, entries / 2, graph.fileBytes() / 1e6);
+        System.out.printf(Locale.ROOT, "in-heap graph estimate %.0f MB vs max heap %.0f MB (%.1fx)%n",
+                heapEstimate / 1e6, maxHeap / 1e6, (double) heapEstimate / maxHeap);
+
+        Random random = new Random(11);
+        graph.clearCache();
+        Metrics.Histogram cold = Metrics.histogram("bench.disk.neighbors.cold.ns");
+        for(int q=0; q<LOOKUPS; q++) {
+            UniversityStudent s = graph.student(random.nextInt(n));
+            long t = Metrics.startTimer();
+            graph.getNeighborView(s);
+            cold.recordSince(t);
+        }
+        printRow("neighbors, uniform", cold);
+
+        // Skewed lookups: most of them go to a small set of popular students.
+        graph.clearCache();
+        long hitsBefore = graph.getCacheHits();
+        long missesBefore = graph.getCacheMisses();
+        int hotSet = Math.max(1, Math.min(DiskStudentGraph.DEFAULT_CACHE_NODES / 2, n));
+        Metrics.Histogram warm = Metrics.histogram("bench.disk.neighbors.skewed.ns");
+        for(int q=0; q<LOOKUPS; q++) {
+            int i = random.nextInt(10) < 9 ? (int) ((long) random.nextInt(hotSet) * n / hotSet) : random.nextInt(n);
+            UniversityStudent s = graph.student(i);
+            long t = Metrics.startTimer();
+            graph.getNeighborView(s);
+            warm.recordSince(t);
+        }
+        long hits = graph.getCacheHits() - hitsBefore;
+        long misses = graph.getCacheMisses() - missesBefore;
+        printRow("neighbors, skewed", warm);
+        System.out.printf(Locale.ROOT, "  hot-node cache hit rate %.1f%%%n", 100.0 * hits / Math.max(1, hits + misses));
+
+        ReferralPathFinder finder = new ReferralPathFinder(graph);
+        Metrics.Histogram referral = Metrics.histogram("bench.disk.referral.ns");
+        int found = 0;
+        for(int q=0; q<referralQueries; q++) {
+            UniversityStudent s = graph.student(random.nextInt(n));
+            long t = Metrics.startTimer();
+            if(!finder.findReferralPath(s, "Netflix").isEmpty()) {
+                found++;
+            }
+            referral.recordSince(t);
+        }
+        printRow("referral", referral);
+        System.out.println("  paths found " + found + "/" + referralQueries);
+
+        long t = System.nanoTime();
+        GraphStatistics stats = GraphStatistics.compute(graph);
+        System.out.printf(Locale.ROOT, "statistics in %.1f s: %d edges, %d components, largest %d, %d isolated%n",
+                (System.nanoTime() - t) / 1e9, stats.getEdgeCount(), stats.getComponentCount(),
+                stats.getLargestComponentSize(), stats.getIsolatedCount());
+
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        System.out.printf(Locale.ROOT, "heap used after GC %.0f MB%n", (rt.totalMemory() - rt.freeMemory()) / 1e6);
+    }
+
+    private static void printRow(String name, Metrics.Histogram h) {
+        System.out.printf(Locale.ROOT, "%-20s %8d ops  p50=%.3fms p99=%.3fms max=%.3fms%n", name, h.getCount(),
+                h.getPercentile(50) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6);
+    }
+}
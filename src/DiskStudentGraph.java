@@ -0,0 +1,526 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A read-only StudentGraph whose adjacency lives in a memory-mapped file instead of the heap,
+ * for cohorts whose edges do not fit in memory as HashMap&lt;UniversityStudent, List&lt;Edge&gt;&gt;.
+ *
+ * Students stay in memory and are numbered by their position in the list the graph was
+ * written with. The file holds a header, the offset of every student's first edge, and then
+ * every student's edges in id order, each edge an (int neighbor id, int weight) pair, sorted
+ * by neighbor id. The operating system pages the file in on demand, so the heap holds only the
+ * students, their index and a small LRU cache of the edge lists of recently visited students.
+ *
+ * getNeighbors, getNeighborView and getAllNodes behave as on an in-memory graph, so
+ * ReferralPathFinder, GraphStatistics and IndexedGraph work on it unchanged. Edge lists are
+ * in neighbor id order rather than insertion order, so among referral paths of equal cost a
+ * different one may be returned. Adding edges or students throws UnsupportedOperationException.
+ *
+ * Graphs are written with a Builder, which spills edges to a temporary file as they arrive and
+ * lays them out in two passes, so building never holds the edges in memory either.
+ */
+public class DiskStudentGraph extends StudentGraph implements Closeable {
+    public static final int DEFAULT_CACHE_NODES = 4096;
+
+    private static final int MAGIC = 0x4C484E47; // "LHNG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int EDGE_BYTES = 8;
+    // Segments are a multiple of 8 bytes, so no offset or edge straddles two mappings.
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private static final Metrics.Counter CACHE_HITS = Metrics.counter("graph.disk.cache.hits");
+    private static final Metrics.Counter CACHE_MISSES = Metrics.counter("graph.disk.cache.misses");
+    private static final Metrics.Histogram LOAD_TIME = Metrics.histogram("graph.disk.load.ns");
+
+    private final List<UniversityStudent> students;
+    private final Map<UniversityStudent, Integer> indexOf;
+    private final Set<UniversityStudent> nodes;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long edgesStart;
+    private final LinkedHashMap<Integer, List<Edge>> cache;
+    private long cacheHits;
+    private long cacheMisses;
+
+    private DiskStudentGraph(List<UniversityStudent> students, String filename, int cacheNodes) throws IOException {
+        super(Collections.<UniversityStudent, List<Edge>>emptyMap(), 0);
+        if(cacheNodes < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + cacheNodes);
+        }
+        this.students = Collections.unmodifiableList(new ArrayList<>(students));
+        this.indexOf = new IdentityHashMap<>(students.size() * 2);
+        for(int i=0; i<this.students.size(); i++) {
+            indexOf.putIfAbsent(this.students.get(i), i);
+        }
+        this.nodes = new AbstractSet<UniversityStudent>() {
+            @Override
+            public Iterator<UniversityStudent> iterator() {
+                return DiskStudentGraph.this.students.iterator();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof UniversityStudent && indexOf.containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return DiskStudentGraph.this.students.size();
+            }
+        };
+
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+            for(int s=0; s<segments.length; s++) {
+                long from = s * SEGMENT_BYTES;
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(SEGMENT_BYTES, size - from));
+            }
+            if(size < HEADER_BYTES || getInt(0) != MAGIC) {
+                throw new IOException("Not a disk graph file: " + filename);
+            }
+            if(getInt(4) != VERSION) {
+                throw new IOException("Unsupported disk graph version: " + getInt(4));
+            }
+            int count = getInt(8);
+            if(count != this.students.size()) {
+                throw new IOException("Disk graph has " + count + " students but " + this.students.size() + " were given");
+            }
+            this.edgesStart = HEADER_BYTES + 8L * (count + 1);
+            if(size < edgesStart || size != edgesStart + EDGE_BYTES * offset(count)) {
+                throw new IOException("Truncated disk graph file: " + filename);
+            }
+        }
+        catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        this.cache = new LinkedHashMap<Integer, List<Edge>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Edge>> eldest) {
+                return size() > cacheNodes;
+            }
+        };
+    }
+
+    /**
+     * Opens a graph file written for the given students, with the default cache size.
+     *
+     * @param students the students in the order the file was written with
+     * @param filename the graph file
+     * @return the graph
+     * @throws IOException if the file cannot be read or does not match the students
+     */
+    public static DiskStudentGraph open(List<UniversityStudent> students, String filename) throws IOException {
+        return open(students, filename, DEFAULT_CACHE_NODES);
+    }
+
+    /**
+     * Opens a graph file written for the given students.
+     *
+     * @param students the students in the order the file was written with
+     * @param filename the graph file
+     * @param cacheNodes the number of decoded edge lists kept in the hot-node cache
+     * @return the graph
+     * @throws IOException if the file cannot be read or does not match the students
+     */
+    public static DiskStudentGraph open(List<UniversityStudent> students, String filename, int cacheNodes) throws IOException {
+        return new DiskStudentGraph(students, filename, cacheNodes);
+    }
+
+    /**
+     * Writes an in-memory graph to a file and opens it. Edges to students outside the order are dropped.
+     *
+     * @param graph the graph to copy
+     * @param order the students to number, in id order
+     * @param filename the graph file to create or overwrite
+     * @return the disk-backed copy
+     * @throws IOException if the file cannot be written
+     */
+    public static DiskStudentGraph write(StudentGraph graph, List<UniversityStudent> order, String filename) throws IOException {
+        try (Builder builder = new Builder(order, filename)) {
+            for(int i=0; i<order.size(); i++) {
+                List<Edge> edges = graph.getNeighborView(order.get(i));
+                if(edges == null) {
+                    continue;
+                }
+                // Each undirected edge is listed at both endpoints, and a self loop twice in its own list.
+                boolean firstHalf = false;
+                for(Edge e : edges) {
+                    Integer j = builder.indexOf().get(e.getNeighbor());
+                    if(j == null || j < i) {
+                        continue;
+                    }
+                    if(j == i) {
+                        firstHalf = !firstHalf;
+                        if(!firstHalf) {
+                            continue;
+                        }
+                    }
+                    builder.addEdge(i, j, e.getWeight());
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Streams undirected edges into a new graph file. Edges are appended to a temporary spill
+     * file; build() counts degrees, lays out the offsets, scatters the spilled edges into
+     * place through a writable mapping and sorts each edge list by neighbor id. Only a degree
+     * counter per student is held in memory.
+     */
+    public static final class Builder implements Closeable {
+        private final List<UniversityStudent> students;
+        private Map<UniversityStudent, Integer> indexOf;
+        private final String filename;
+        private final Path spill;
+        private final DataOutputStream spillOut;
+        private final int[] degree;
+        private long edges;
+        private boolean built;
+
+        /**
+         * Constructs a builder for the given students.
+         *
+         * @param students the students, numbered by position
+         * @param filename the graph file to create or overwrite
+         * @throws IOException if the spill file cannot be created
+         */
+        public Builder(List<UniversityStudent> students, String filename) throws IOException {
+            this.students = students;
+            this.filename = filename;
+            Path target = Paths.get(filename).toAbsolutePath();
+            this.spill = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".spill");
+            this.spillOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spill), 1 << 16));
+            this.degree = new int[students.size()];
+        }
+
+        /**
+         * Adds an undirected edge between two students by id.
+         *
+         * @param a the id of one student
+         * @param b the id of the other student
+         * @param weight edge weight
+         * @throws IOException if the spill file cannot be written
+         */
+        public void addEdge(int a, int b, int weight) throws IOException {
+            if(a < 0 || a >= degree.length || b < 0 || b >= degree.length) {
+                throw new IndexOutOfBoundsException("Edge " + a + "-" + b + " out of bounds for " + degree.length + " students");
+            }
+            if(built) {
+                throw new IllegalStateException("Graph already built");
+            }
+            spillOut.writeInt(a);
+            spillOut.writeInt(b);
+            spillOut.writeInt(weight);
+            degree[a]++;
+            degree[b]++;
+            edges++;
+        }
+
+        /**
+         * Adds an undirected edge between two students.
+         *
+         * @param a one student
+         * @param b the other student
+         * @param weight edge weight
+         * @throws IOException if the spill file cannot be written
+         */
+        public void addEdge(UniversityStudent a, UniversityStudent b, int weight) throws IOException {
+            Integer i = indexOf().get(a);
+            Integer j = indexOf().get(b);
+            if(i == null || j == null) {
+                throw new IllegalArgumentException("Edge endpoint is not one of the builder's students");
+            }
+            addEdge(i, j, weight);
+        }
+
+        /**
+         * Returns the id of every student, built on first use so that builders fed by id never pay for it.
+         */
+        private Map<UniversityStudent, Integer> indexOf() {
+            if(indexOf == null) {
+                indexOf = new IdentityHashMap<>(students.size() * 2);
+                for(int i=0; i<students.size(); i++) {
+                    indexOf.putIfAbsent(students.get(i), i);
+                }
+            }
+            return indexOf;
+        }
+
+        /**
+         * Returns the number of undirected edges added so far.
+         * @return the edge count
+         */
+        public long getEdgeCount() {
+            return edges;
+        }
+
+        /**
+         * Writes the graph file and opens it with the default cache size.
+         *
+         * @return the graph
+         * @throws IOException if the file cannot be written
+         */
+        public DiskStudentGraph build() throws IOException {
+            return build(DEFAULT_CACHE_NODES);
+        }
+
+        /**
+         * Writes the graph file and opens it.
+         *
+         * @param cacheNodes the number of decoded edge lists kept in the hot-node cache
+         * @return the graph
+         * @throws IOException if the file cannot be written
+         */
+        public DiskStudentGraph build(int cacheNodes) throws IOException {
+            if(built) {
+                throw new IllegalStateException("Graph already built");
+            }
+            built = true;
+            spillOut.close();
+            int n = degree.length;
+            long edgesStart = HEADER_BYTES + 8L * (n + 1);
+            long size = edgesStart + EDGE_BYTES * 2 * edges;
+
+            try (FileChannel out = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+                for(int s=0; s<segments.length; s++) {
+                    long from = s * SEGMENT_BYTES;
+                    segments[s] = out.map(FileChannel.MapMode.READ_WRITE, from, Math.min(SEGMENT_BYTES, size - from));
+                }
+                putInt(segments, 0, MAGIC);
+                putInt(segments, 4, VERSION);
+                putInt(segments, 8, n);
+                long offset = 0;
+                for(int i=0; i<=n; i++) {
+                    putLong(segments, HEADER_BYTES + 8L * i, offset);
+                    if(i < n) {
+                        offset += degree[i];
+                    }
+                }
+
+                // Scatter pass: degree[] now counts down the free slots of every list.
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spill), 1 << 16))) {
+                    for(long e=0; e<edges; e++) {
+                        int a = in.readInt();
+                        int b = in.readInt();
+                        int weight = in.readInt();
+                        place(segments, edgesStart, a, b, weight);
+                        place(segments, edgesStart, b, a, weight);
+                    }
+                }
+
+                // Sort every list by neighbor id, then weight, packed as longs.
+                long[] scratch = new long[16];
+                for(int i=0; i<n; i++) {
+                    long from = getLong(segments, HEADER_BYTES + 8L * i);
+                    int count = (int) (getLong(segments, HEADER_BYTES + 8L * (i + 1)) - from);
+                    if(count < 2) {
+                        continue;
+                    }
+                    if(scratch.length < count) {
+                        scratch = new long[Math.max(count, scratch.length * 2)];
+                    }
+                    for(int k=0; k<count; k++) {
+                        long pos = edgesStart + EDGE_BYTES * (from + k);
+                        scratch[k] = (long) getInt(segments, pos) << 32 | (getInt(segments, pos + 4) & 0xFFFFFFFFL);
+                    }
+                    Arrays.sort(scratch, 0, count);
+                    for(int k=0; k<count; k++) {
+                        long pos = edgesStart + EDGE_BYTES * (from + k);
+                        putInt(segments, pos, (int) (scratch[k] >>> 32));
+                        putInt(segments, pos + 4, (int) scratch[k]);
+                    }
+                }
+                for(MappedByteBuffer segment : segments) {
+                    segment.force();
+                }
+            }
+            finally {
+                Files.deleteIfExists(spill);
+            }
+            return new DiskStudentGraph(students, filename, cacheNodes);
+        }
+
+        private void place(MappedByteBuffer[] segments, long edgesStart, int from, int to, int weight) {
+            long last = getLong(segments, HEADER_BYTES + 8L * (from + 1));
+            long pos = edgesStart + EDGE_BYTES * (last - degree[from]--);
+            putInt(segments, pos, to);
+            putInt(segments, pos + 4, weight);
+        }
+
+        /**
+         * Deletes the spill file if build was never called.
+         */
+        @Override
+        public void close() throws IOException {
+            spillOut.close();
+            Files.deleteIfExists(spill);
+        }
+    }
+
+    private static ByteBuffer segment(ByteBuffer[] segments, long pos) {
+        return segments[(int) (pos / SEGMENT_BYTES)];
+    }
+
+    private static int getInt(ByteBuffer[] segments, long pos) {
+        return segment(segments, pos).getInt((int) (pos % SEGMENT_BYTES));
+    }
+
+    private static long getLong(ByteBuffer[] segments, long pos) {
+        return segment(segments, pos).getLong((int) (pos % SEGMENT_BYTES));
+    }
+
+    private static void putInt(ByteBuffer[] segments, long pos, int value) {
+        segment(segments, pos).putInt((int) (pos % SEGMENT_BYTES), value);
+    }
+
+    private static void putLong(ByteBuffer[] segments, long pos, long value) {
+        segment(segments, pos).putLong((int) (pos % SEGMENT_BYTES), value);
+    }
+
+    private int getInt(long pos) {
+        return getInt(segments, pos);
+    }
+
+    private long offset(int i) {
+        return getLong(segments, HEADER_BYTES + 8L * i);
+    }
+
+    /**
+     * Returns the edge list of a student from the cache, or decodes it from the mapping.
+     */
+    private List<Edge> edgesOf(int i) {
+        synchronized(cache) {
+            List<Edge> cached = cache.get(i);
+            if(cached != null) {
+                cacheHits++;
+                CACHE_HITS.increment();
+                return cached;
+            }
+            cacheMisses++;
+        }
+        CACHE_MISSES.increment();
+        long start = Metrics.startTimer();
+        long from = offset(i);
+        int count = (int) (offset(i + 1) - from);
+        List<Edge> edges = new ArrayList<>(count);
+        for(int k=0; k<count; k++) {
+            long pos = edgesStart + EDGE_BYTES * (from + k);
+            edges.add(new Edge(students.get(getInt(pos)), getInt(pos + 4)));
+        }
+        List<Edge> view = Collections.unmodifiableList(edges);
+        synchronized(cache) {
+            cache.put(i, view);
+        }
+        LOAD_TIME.recordSince(start);
+        return view;
+    }
+
+    public int size() {
+        return students.size();
+    }
+
+    public UniversityStudent student(int i) {
+        return students.get(i);
+    }
+
+    /**
+     * Returns the id of a student, or -1 if the student is not in the graph.
+     * @param s the student to look up
+     * @return the student id
+     */
+    public int indexOf(UniversityStudent s) {
+        Integer i = indexOf.get(s);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Returns the number of edges of a student, read from the offsets without decoding the edges.
+     * @param i the student id
+     * @return the degree
+     */
+    public int degree(int i) {
+        return (int) (offset(i + 1) - offset(i));
+    }
+
+    /**
+     * Returns the number of directed edge entries, i.e. twice the undirected edge count.
+     * @return the edge entry count
+     */
+    public long edgeEntries() {
+        return offset(students.size());
+    }
+
+    /**
+     * Returns the size of the mapped graph file.
+     * @return the size in bytes
+     */
+    public long fileBytes() {
+        return edgesStart + EDGE_BYTES * edgeEntries();
+    }
+
+    public long getCacheHits() {
+        synchronized(cache) {
+            return cacheHits;
+        }
+    }
+
+    public long getCacheMisses() {
+        synchronized(cache) {
+            return cacheMisses;
+        }
+    }
+
+    /**
+     * Drops every cached edge list, e.g. to measure cold lookups.
+     */
+    public void clearCache() {
+        synchronized(cache) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public List<StudentGraph.Edge> getNeighbors(UniversityStudent student) {
+        Integer i = student == null ? null : indexOf.get(student);
+        return i == null ? null : new ArrayList<>(edgesOf(i));
+    }
+
+    @Override
+    public List<StudentGraph.Edge> getNeighborView(UniversityStudent student) {
+        Integer i = student == null ? null : indexOf.get(student);
+        return i == null ? null : edgesOf(i);
+    }
+
+    @Override
+    public Set<UniversityStudent> getAllNodes() {
+        return nodes;
+    }
+
+    /**
+     * Not supported: the adjacency is not held in memory.
+     */
+    @Override
+    Map<UniversityStudent, List<Edge>> adjacency() {
+        throw new UnsupportedOperationException("A disk-backed graph has no in-memory adjacency");
+    }
+
+    /**
+     * Unmaps nothing eagerly (mappings are released when collected) but closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,5 +1,3 @@
-import java.util.concurrent.Semaphore;
-
 /**
  * FriendRequestThread implements a runnable task for sending friend requests between students.
  * This class enables concurrent friend request operations by running them asynchronously
@@ -9,7 +7,7 @@ public class FriendRequestThread implements Runnable {
     private UniversityStudent sender;
     private UniversityStudent receiver;
 
-    private static final Semaphore semaphore = new Semaphore(1);
+    private static final String TASK_TYPE = "friend";
     /**
      * Constructs a FriendRequestThread with sender and receiver information.
      *
@@ -29,8 +27,16 @@ public class FriendRequestThread implements Runnable {
      */
     @Override
     public void run() {
+        TaskLock.Permit permit;
+        try {
+            permit = TaskLock.forTask(TASK_TYPE).acquire(sender);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Friend request interrupted by: " + e.getMessage());
+            return;
+        }
         try {
-            semaphore.acquire();
             String log = "Friend request from " + sender.name + " to " + receiver.name;
 
             System.out.println(log);
@@ -39,12 +45,8 @@ public class FriendRequestThread implements Runnable {
                 Main.executionLogs.add(log);
             }
         }
-        catch(InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("Friend request interrupted by: " + e.getMessage());
-        }
         finally {
-            semaphore.release();
+            permit.release();
         }
     }
 }
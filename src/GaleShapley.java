@@ -1,3 +1,4 @@
+import java.io.PrintStream;
 import java.util.*;
 
 /**
@@ -6,6 +7,10 @@ import java.util.*;
  * ensuring that no pair of unmatched students would both prefer each other over their current matches.
  */
 public class GaleShapley {
+    private static final Metrics.Histogram MATCHING_TIME = Metrics.histogram("matching.run.ns");
+    private static final Metrics.Counter PROPOSALS = Metrics.counter("matching.proposals");
+    private static final Metrics.Counter REJECTIONS = Metrics.counter("matching.rejections");
+
     /**
      * Assigns roommates to students using the Gale-Shapley algorithm.
      * Creates reciprocal roommate pairings based on mutual preferences.
@@ -14,10 +19,22 @@ public class GaleShapley {
      * @param students the list of UniversityStudent objects to assign roommates for
      */
     public static void assignRoommates(List<UniversityStudent> students) {
+        assignRoommates(students, System.out);
+    }
+
+    /**
+     * Assigns roommates as assignRoommates does, printing the resulting pairs to the given
+     * stream, or not at all when it is null.
+     *
+     * @param students the list of UniversityStudent objects to assign roommates for
+     * @param pairsOut where to print the pairs, may be null
+     */
+    public static void assignRoommates(List<UniversityStudent> students, PrintStream pairsOut) {
         if(students == null || students.isEmpty()) {
             return;
         }
 
+        long startTime = Metrics.startTimer();
         Map<String, UniversityStudent> stringToUniversityStudent = new HashMap<>();
         Map<UniversityStudent, Integer> nextIndex = new HashMap<>();
         Map<UniversityStudent, UniversityStudent> matchMap = new HashMap<>();
@@ -78,6 +95,7 @@ public class GaleShapley {
                 continue;
             }
 
+            PROPOSALS.increment();
             UniversityStudent receiverCurrent = matchMap.get(receiver);
             if(receiverCurrent == null) {
                 matchMap.put(proposer, receiver);
@@ -110,16 +128,168 @@ public class GaleShapley {
                 }
                 else {
                     // Receiver does not prefer new proposer, push proposer back into queue to try again later.
+                    REJECTIONS.increment();
                     if(nextIndex.get(proposer) < proposer.roommatePreferences.size()) {
                         freeQueue.offer(proposer);
                     }
                 }
             }
         }
+        MATCHING_TIME.recordSince(startTime);
+        if(pairsOut == null) {
+            return;
+        }
         for(UniversityStudent student : students) {
             if(student.getRoommate() != null && student.name.compareTo(student.getRoommate().name) < 0) {
-                System.out.println(student.name + " <-> " + student.getRoommate().name);
+                pairsOut.println(student.name + " <-> " + student.getRoommate().name);
+            }
+        }
+    }
+
+    /**
+     * Assigns roommates over a columnar student table, using student ids and int arrays in place
+     * of the object maps. Proposals, rejections and the resulting assignment are the same as
+     * assignRoommates on the table's views; the pairs are stored in the table and not printed.
+     *
+     * @param table the students to assign roommates for
+     * @return the roommate id of every student, or -1 for students left unmatched
+     */
+    public static int[] assignRoommates(StudentTable table) {
+        int[] roommate = matchRoommates(table, Integer.MAX_VALUE);
+        for(int s=0; s<roommate.length; s++) {
+            table.setRoommate(s, roommate[s]);
+        }
+        return roommate;
+    }
+
+    /**
+     * Computes the assignment of assignRoommates(StudentTable) without storing it in the
+     * table, considering only the first preferenceCutoff entries of every preference list.
+     * The table is only read, so concurrent calls on the same table are safe once its views exist.
+     *
+     * @param table the students to match
+     * @param preferenceCutoff the number of leading preferences each student may propose to and rank
+     * @return the roommate id of every student, or -1 for students left unmatched
+     */
+    public static int[] matchRoommates(StudentTable table, int preferenceCutoff) {
+        if(preferenceCutoff < 0) {
+            throw new IllegalArgumentException("Preference cutoff must not be negative: " + preferenceCutoff);
+        }
+        int n = table.size();
+        int[] roommate = new int[n];
+        Arrays.fill(roommate, -1);
+        if(n == 0) {
+            return roommate;
+        }
+
+        long startTime = Metrics.startTimer();
+        int[] match = new int[n];
+        Arrays.fill(match, -1);
+        int[] nextIndex = new int[n];
+        IntQueue freeQueue = new IntQueue(n);
+        for(int s=0; s<n; s++) {
+            freeQueue.offer(s);
+        }
+
+        while(!freeQueue.isEmpty()) {
+            int proposer = freeQueue.poll();
+            int index = nextIndex[proposer];
+            int preferences = Math.min(table.preferenceCount(proposer), preferenceCutoff);
+            if(roommate[proposer] >= 0 || index >= preferences) {
+                continue;
+            }
+
+            int receiver = table.preferenceId(proposer, index);
+            nextIndex[proposer] = index + 1;
+            if(receiver < 0) {
+                if(nextIndex[proposer] < preferences) {
+                    freeQueue.offer(proposer);
+                }
+                continue;
+            }
+
+            PROPOSALS.increment();
+            int receiverCurrent = match[receiver];
+            if(receiverCurrent < 0) {
+                match[proposer] = receiver;
+                match[receiver] = proposer;
+                roommate[proposer] = receiver;
+                roommate[receiver] = proposer;
+            }
+            else if(rankOf(table, receiver, proposer, preferenceCutoff) < rankOf(table, receiver, receiverCurrent, preferenceCutoff)) {
+                // Receiver prefers the new proposer. Dump current and match with proposer.
+                int proposerCurrent = match[proposer];
+                if(proposerCurrent >= 0) {
+                    match[proposerCurrent] = -1;
+                }
+                match[proposer] = receiver;
+                match[receiver] = proposer;
+                match[receiverCurrent] = -1;
+                if(nextIndex[receiverCurrent] < Math.min(table.preferenceCount(receiverCurrent), preferenceCutoff)) {
+                    freeQueue.offer(receiverCurrent);
+                }
+                roommate[proposer] = receiver;
+                roommate[receiver] = proposer;
+            }
+            else {
+                REJECTIONS.increment();
+                if(nextIndex[proposer] < preferences) {
+                    freeQueue.offer(proposer);
+                }
+            }
+        }
+        MATCHING_TIME.recordSince(startTime);
+        return roommate;
+    }
+
+    /**
+     * Returns the rank a student gives another among its first cutoff preferences, using the
+     * last occurrence as the rank map of assignRoommates does, or Integer.MAX_VALUE if absent.
+     */
+    static int rankOf(StudentTable table, int student, int other, int cutoff) {
+        for(int r=Math.min(table.preferenceCount(student), cutoff)-1; r>=0; r--) {
+            if(table.preferenceId(student, r) == other) {
+                return r;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * FIFO queue of ints backed by a growable ring buffer. A dumped student can be queued
+     * again while still waiting, so the queue may hold more than one entry per student.
+     */
+    private static final class IntQueue {
+        private int[] items;
+        private int head;
+        private int size;
+
+        IntQueue(int capacity) {
+            items = new int[Math.max(1, capacity)];
+        }
+
+        void offer(int value) {
+            if(size == items.length) {
+                int[] grown = new int[items.length * 2];
+                for(int i=0; i<size; i++) {
+                    grown[i] = items[(head + i) % items.length];
+                }
+                items = grown;
+                head = 0;
             }
+            items[(head + size) % items.length] = value;
+            size++;
+        }
+
+        int poll() {
+            int value = items[head];
+            head = (head + 1) % items.length;
+            size--;
+            return value;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
         }
     }
 }
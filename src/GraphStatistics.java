@@ -0,0 +1,380 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Operational statistics for a StudentGraph: connected components, isolated students,
+ * the degree distribution and the edge weight histogram.
+ *
+ * compute() gathers everything in one parallel pass over the adjacency lists, merging
+ * components with a ConcurrentUnionFind. The result can then be attached to the graph as
+ * an edge listener and is updated incrementally, in near-constant time per added or
+ * reweighted edge, instead of being recomputed. A union-find cannot split a component, so
+ * a removed edge only marks the components stale; they are rebuilt from the graph the next
+ * time a component figure is read.
+ */
+public class GraphStatistics implements StudentGraph.EdgeListener {
+    private static final int CHUNK_SIZE = 1024;
+
+    private final Map<UniversityStudent, Integer> indexOf;
+    private StudentGraph graph;
+    private boolean componentsStale;
+    private ConcurrentUnionFind components;
+    private int[] degree;
+    private int[] componentSize;
+    private int nodeCount;
+    private long edgeCount;
+    private int isolatedCount;
+    private int componentCount;
+    private int largestComponentSize;
+    private final TreeMap<Integer, Long> degreeDistribution;
+    private final TreeMap<Integer, Long> weightHistogram;
+
+    private GraphStatistics() {
+        this.indexOf = new HashMap<>();
+        this.degreeDistribution = new TreeMap<>();
+        this.weightHistogram = new TreeMap<>();
+    }
+
+    /**
+     * Computes statistics for a graph using all available processors.
+     *
+     * @param graph the graph to analyse
+     * @return the statistics
+     */
+    public static GraphStatistics compute(StudentGraph graph) {
+        return compute(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Computes statistics for a graph in one parallel pass. Each worker walks a chunk of
+     * students, records their degree, counts the weight of every edge once (from its
+     * lower-indexed endpoint) and unions the endpoints.
+     *
+     * @param graph the graph to analyse
+     * @param parallelism the number of worker threads
+     * @return the statistics
+     */
+    public static GraphStatistics compute(StudentGraph graph, int parallelism) {
+        GraphStatistics stats = new GraphStatistics();
+        stats.graph = graph;
+        List<UniversityStudent> nodes = new ArrayList<>(graph.getAllNodes());
+        int n = nodes.size();
+        for(int i=0; i<n; i++) {
+            stats.indexOf.put(nodes.get(i), i);
+        }
+        stats.nodeCount = n;
+        stats.degree = new int[n];
+        stats.components = new ConcurrentUnionFind(n);
+
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        List<Callable<Map<Integer, Long>>> tasks = new ArrayList<>(chunks);
+        for(int c=0; c<chunks; c++) {
+            int from = c * CHUNK_SIZE;
+            int to = Math.min(n, from + CHUNK_SIZE);
+            tasks.add(() -> {
+                Map<Integer, Long> weights = new HashMap<>();
+                for(int u=from; u<to; u++) {
+                    List<StudentGraph.Edge> edges = graph.getNeighborView(nodes.get(u));
+                    if(edges == null) {
+                        continue;
+                    }
+                    stats.degree[u] = edges.size();
+                    for(StudentGraph.Edge e : edges) {
+                        Integer v = stats.indexOf.get(e.getNeighbor());
+                        if(v != null && v > u) {
+                            weights.merge(e.getWeight(), 1L, Long::sum);
+                            stats.components.union(u, v);
+                        }
+                    }
+                }
+                return weights;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, chunks)));
+        try {
+            for(Future<Map<Integer, Long>> f : executor.invokeAll(tasks)) {
+                for(Map.Entry<Integer, Long> entry : f.get().entrySet()) {
+                    stats.weightHistogram.merge(entry.getKey(), entry.getValue(), Long::sum);
+                    stats.edgeCount += entry.getValue();
+                }
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Statistics computation interrupted", e);
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException("Statistics computation failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        // Sizes are kept per root so incremental unions can update them in O(1).
+        stats.componentSize = new int[n];
+        for(int u=0; u<n; u++) {
+            stats.componentSize[stats.components.find(u)]++;
+            stats.degreeDistribution.merge(stats.degree[u], 1L, Long::sum);
+            if(stats.degree[u] == 0) {
+                stats.isolatedCount++;
+            }
+        }
+        for(int u=0; u<n; u++) {
+            int size = stats.componentSize[u];
+            if(size > 0) {
+                stats.componentCount++;
+                stats.largestComponentSize = Math.max(stats.largestComponentSize, size);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Computes statistics for a graph and keeps them current as edges are added, reweighted or removed.
+     *
+     * @param graph the graph to analyse and observe
+     * @return the live statistics
+     */
+    public static GraphStatistics attach(StudentGraph graph) {
+        GraphStatistics stats = compute(graph);
+        graph.addEdgeListener(stats);
+        return stats;
+    }
+
+    /**
+     * Updates the statistics for one new undirected edge. Students not seen before are added.
+     *
+     * @param student one endpoint of the edge
+     * @param neighborStudent the other endpoint of the edge
+     * @param weight the edge weight
+     */
+    @Override
+    public synchronized void edgeAdded(UniversityStudent student, UniversityStudent neighborStudent, int weight) {
+        int a = indexFor(student);
+        int b = indexFor(neighborStudent);
+        bumpDegree(a);
+        bumpDegree(b);
+        weightHistogram.merge(weight, 1L, Long::sum);
+        edgeCount++;
+
+        if(componentsStale) {
+            return;
+        }
+        int ra = components.find(a);
+        int rb = components.find(b);
+        int root = components.union(ra, rb);
+        if(root >= 0) {
+            int merged = componentSize[ra] + componentSize[rb];
+            componentSize[ra] = 0;
+            componentSize[rb] = 0;
+            componentSize[root] = merged;
+            componentCount--;
+            largestComponentSize = Math.max(largestComponentSize, merged);
+        }
+    }
+
+    /**
+     * Moves one undirected edge to a new weight in the weight histogram.
+     *
+     * @param student one endpoint of the edge
+     * @param neighborStudent the other endpoint of the edge
+     * @param oldWeight the weight before the change
+     * @param newWeight the weight after the change
+     */
+    @Override
+    public synchronized void edgeWeightChanged(UniversityStudent student, UniversityStudent neighborStudent, int oldWeight, int newWeight) {
+        dropWeight(oldWeight);
+        weightHistogram.merge(newWeight, 1L, Long::sum);
+    }
+
+    /**
+     * Updates the statistics for one removed undirected edge. Components are rebuilt lazily,
+     * since the removal may have split one.
+     *
+     * @param student one endpoint of the edge
+     * @param neighborStudent the other endpoint of the edge
+     * @param weight the weight the edge had
+     */
+    @Override
+    public synchronized void edgeRemoved(UniversityStudent student, UniversityStudent neighborStudent, int weight) {
+        Integer a = indexOf.get(student);
+        Integer b = indexOf.get(neighborStudent);
+        if(a == null || b == null) {
+            return;
+        }
+        dropDegree(a);
+        dropDegree(b);
+        dropWeight(weight);
+        edgeCount--;
+        componentsStale = true;
+    }
+
+    /**
+     * Recomputes the components from the observed graph after edges were removed.
+     */
+    private void ensureComponents() {
+        if(!componentsStale) {
+            return;
+        }
+        components = new ConcurrentUnionFind(degree.length);
+        Arrays.fill(componentSize, 0);
+        for(Map.Entry<UniversityStudent, Integer> entry : indexOf.entrySet()) {
+            int u = entry.getValue();
+            List<StudentGraph.Edge> edges = graph.getNeighborView(entry.getKey());
+            if(edges == null) {
+                continue;
+            }
+            for(StudentGraph.Edge e : edges) {
+                Integer v = indexOf.get(e.getNeighbor());
+                if(v != null && v > u) {
+                    components.union(u, v);
+                }
+            }
+        }
+        componentCount = 0;
+        largestComponentSize = 0;
+        for(int u=0; u<nodeCount; u++) {
+            componentSize[components.find(u)]++;
+        }
+        for(int u=0; u<nodeCount; u++) {
+            if(componentSize[u] > 0) {
+                componentCount++;
+                largestComponentSize = Math.max(largestComponentSize, componentSize[u]);
+            }
+        }
+        componentsStale = false;
+    }
+
+    /**
+     * Returns the index of a student, registering it as a new isolated node if unknown.
+     */
+    private int indexFor(UniversityStudent s) {
+        Integer index = indexOf.get(s);
+        if(index != null) {
+            return index;
+        }
+        int i = nodeCount++;
+        if(i >= degree.length) {
+            int capacity = Math.max(16, degree.length * 2);
+            degree = Arrays.copyOf(degree, capacity);
+            componentSize = Arrays.copyOf(componentSize, capacity);
+            components = new ConcurrentUnionFind(components, capacity);
+        }
+        indexOf.put(s, i);
+        componentSize[i] = 1;
+        componentCount++;
+        isolatedCount++;
+        degreeDistribution.merge(0, 1L, Long::sum);
+        largestComponentSize = Math.max(largestComponentSize, 1);
+        return i;
+    }
+
+    private void dropDegree(int u) {
+        int old = degree[u]--;
+        if(degreeDistribution.merge(old, -1L, Long::sum) == 0) {
+            degreeDistribution.remove(old);
+        }
+        degreeDistribution.merge(old - 1, 1L, Long::sum);
+        if(old == 1) {
+            isolatedCount++;
+        }
+    }
+
+    private void dropWeight(int weight) {
+        if(weightHistogram.merge(weight, -1L, Long::sum) == 0) {
+            weightHistogram.remove(weight);
+        }
+    }
+
+    private void bumpDegree(int u) {
+        int old = degree[u]++;
+        if(degreeDistribution.merge(old, -1L, Long::sum) == 0) {
+            degreeDistribution.remove(old);
+        }
+        degreeDistribution.merge(old + 1, 1L, Long::sum);
+        if(old == 0) {
+            isolatedCount--;
+        }
+    }
+
+    public synchronized int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the number of undirected edges.
+     * @return the edge count
+     */
+    public synchronized long getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the number of students without any connection.
+     * @return the isolated student count
+     */
+    public synchronized int getIsolatedCount() {
+        return isolatedCount;
+    }
+
+    public synchronized int getComponentCount() {
+        ensureComponents();
+        return componentCount;
+    }
+
+    public synchronized int getLargestComponentSize() {
+        ensureComponents();
+        return largestComponentSize;
+    }
+
+    /**
+     * Returns how many students have each degree.
+     * @return a copy of the degree distribution, keyed by degree
+     */
+    public synchronized SortedMap<Integer, Long> getDegreeDistribution() {
+        return new TreeMap<>(degreeDistribution);
+    }
+
+    /**
+     * Returns how many undirected edges carry each weight.
+     * @return a copy of the weight histogram, keyed by weight
+     */
+    public synchronized SortedMap<Integer, Long> getWeightHistogram() {
+        return new TreeMap<>(weightHistogram);
+    }
+
+    /**
+     * Tells whether two students are in the same connected component.
+     *
+     * @param a one student
+     * @param b another student
+     * @return true if a path connects them, false otherwise or if either is unknown
+     */
+    public synchronized boolean sameComponent(UniversityStudent a, UniversityStudent b) {
+        Integer ia = indexOf.get(a);
+        Integer ib = indexOf.get(b);
+        ensureComponents();
+        return ia != null && ib != null && components.connected(ia, ib);
+    }
+
+    /**
+     * Returns the size of the connected component containing a student.
+     *
+     * @param s the student
+     * @return the component size, or 0 if the student is unknown
+     */
+    public synchronized int componentSizeOf(UniversityStudent s) {
+        Integer i = indexOf.get(s);
+        ensureComponents();
+        return i == null ? 0 : componentSize[components.find(i)];
+    }
+
+    @Override
+    public synchronized String toString() {
+        ensureComponents();
+        return "nodes=" + nodeCount + ", edges=" + edgeCount + ", isolated=" + isolatedCount
+                + ", components=" + componentCount + ", largestComponent=" + largestComponentSize
+                + ", degrees=" + degreeDistribution + ", weights=" + weightHistogram;
+    }
+}
@@ -0,0 +1,237 @@
+import java.util.*;
+
+/**
+ * Compact, read-only snapshot of a StudentGraph for bulk algorithms.
+ * Students are numbered 0..n-1 and edges are stored in compressed sparse row form:
+ * the edges of student i occupy positions neighborStart(i) until neighborEnd(i) in
+ * flat target and weight arrays. Each undirected edge appears once per endpoint.
+ */
+public class IndexedGraph {
+    private final UniversityStudent[] students;
+    private final Map<UniversityStudent, Integer> indexOf;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final long[] weightedDegrees;
+
+    private IndexedGraph(UniversityStudent[] students, Map<UniversityStudent, Integer> indexOf, int[] offsets, int[] targets, int[] weights) {
+        this.students = students;
+        this.indexOf = indexOf;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.weightedDegrees = new long[students.length];
+        for(int i=0; i<students.length; i++) {
+            for(int k=offsets[i]; k<offsets[i + 1]; k++) {
+                weightedDegrees[i] += weights[k];
+            }
+        }
+    }
+
+    /**
+     * Builds a snapshot of the graph with students numbered in name order, so that
+     * results computed on the snapshot are deterministic between runs.
+     *
+     * @param graph the graph to snapshot
+     * @return the indexed snapshot
+     */
+    public static IndexedGraph from(StudentGraph graph) {
+        List<UniversityStudent> order = new ArrayList<>(graph.getAllNodes());
+        order.sort(Comparator.comparing(s -> s.name));
+        return from(graph, order);
+    }
+
+    /**
+     * Builds a snapshot of the graph with students numbered in the given order.
+     * Edges to students missing from the order are dropped.
+     *
+     * @param graph the graph to snapshot
+     * @param order the students to include, in index order
+     * @return the indexed snapshot
+     */
+    public static IndexedGraph from(StudentGraph graph, List<UniversityStudent> order) {
+        int n = order.size();
+        UniversityStudent[] students = order.toArray(new UniversityStudent[0]);
+        Map<UniversityStudent, Integer> indexOf = new HashMap<>(n * 2);
+        for(int i=0; i<n; i++) {
+            indexOf.put(students[i], i);
+        }
+
+        int[] offsets = new int[n + 1];
+        for(int i=0; i<n; i++) {
+            List<StudentGraph.Edge> edges = graph.getNeighborView(students[i]);
+            offsets[i + 1] = offsets[i] + (edges == null ? 0 : edges.size());
+        }
+        int[] targets = new int[offsets[n]];
+        int[] weights = new int[offsets[n]];
+        int pos = 0;
+        for(int i=0; i<n; i++) {
+            List<StudentGraph.Edge> edges = graph.getNeighborView(students[i]);
+            if(edges == null) {
+                offsets[i + 1] = pos;
+                continue;
+            }
+            for(StudentGraph.Edge e : edges) {
+                Integer j = indexOf.get(e.getNeighbor());
+                if(j != null) {
+                    targets[pos] = j;
+                    weights[pos] = e.getWeight();
+                    pos++;
+                }
+            }
+            offsets[i + 1] = pos;
+        }
+        if(pos < targets.length) {
+            targets = Arrays.copyOf(targets, pos);
+            weights = Arrays.copyOf(weights, pos);
+        }
+        return new IndexedGraph(students, indexOf, offsets, targets, weights);
+    }
+
+    /**
+     * Returns a copy of the snapshot with extra weight on the edge between every pair of
+     * partners, inserting the edge where the pair was not connected. Students and their
+     * indices are shared with this snapshot; only the edge arrays are copied.
+     *
+     * @param partner the partner index of every student, or -1; a pair counts only if each names the other
+     * @param weight the weight added to each pair
+     * @return the derived snapshot
+     */
+    public IndexedGraph withPairWeights(int[] partner, int weight) {
+        int n = students.length;
+        if(partner.length != n) {
+            throw new IllegalArgumentException("Partner array length " + partner.length + " does not match graph size " + n);
+        }
+        int[] extra = new int[n];
+        int[] existing = new int[n];
+        Arrays.fill(existing, -1);
+        for(int i=0; i<n; i++) {
+            int p = partner[i];
+            if(p < 0 || p == i || partner[p] != i) {
+                continue;
+            }
+            for(int k=offsets[i]; k<offsets[i + 1]; k++) {
+                if(targets[k] == p) {
+                    existing[i] = k;
+                    break;
+                }
+            }
+            if(existing[i] < 0) {
+                extra[i] = 1;
+            }
+        }
+
+        int[] newOffsets = new int[n + 1];
+        for(int i=0; i<n; i++) {
+            newOffsets[i + 1] = newOffsets[i] + degree(i) + extra[i];
+        }
+        int[] newTargets = new int[newOffsets[n]];
+        int[] newWeights = new int[newOffsets[n]];
+        for(int i=0; i<n; i++) {
+            int pos = newOffsets[i];
+            System.arraycopy(targets, offsets[i], newTargets, pos, degree(i));
+            System.arraycopy(weights, offsets[i], newWeights, pos, degree(i));
+            if(existing[i] >= 0) {
+                newWeights[pos + existing[i] - offsets[i]] += weight;
+            }
+            else if(extra[i] > 0) {
+                newTargets[pos + degree(i)] = partner[i];
+                newWeights[pos + degree(i)] = weight;
+            }
+        }
+        return new IndexedGraph(students, indexOf, newOffsets, newTargets, newWeights);
+    }
+
+    /**
+     * Returns the number of students in the snapshot.
+     * @return the node count
+     */
+    public int size() {
+        return students.length;
+    }
+
+    /**
+     * Returns the number of directed edge entries, i.e. twice the undirected edge count.
+     * @return the edge entry count
+     */
+    public int edgeEntries() {
+        return targets.length;
+    }
+
+    public UniversityStudent student(int i) {
+        return students[i];
+    }
+
+    /**
+     * Returns the index of a student, or -1 if the student is not in the snapshot.
+     * @param s the student to look up
+     * @return the index of the student
+     */
+    public int indexOf(UniversityStudent s) {
+        Integer i = indexOf.get(s);
+        return i == null ? -1 : i;
+    }
+
+    public int neighborStart(int i) {
+        return offsets[i];
+    }
+
+    public int neighborEnd(int i) {
+        return offsets[i + 1];
+    }
+
+    public int degree(int i) {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public int weight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * Returns the sum of the weights of all edges of a student.
+     * @param i the student index
+     * @return the weighted degree
+     */
+    public long weightedDegree(int i) {
+        return weightedDegrees[i];
+    }
+
+    /**
+     * Labels every student with the id of its connected component.
+     * Components are numbered 0..c-1 in order of their smallest student index.
+     *
+     * @return an array mapping student index to component id
+     */
+    public int[] componentIds() {
+        int n = students.length;
+        int[] component = new int[n];
+        Arrays.fill(component, -1);
+        int[] stack = new int[n];
+        int next = 0;
+        for(int start=0; start<n; start++) {
+            if(component[start] >= 0) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = start;
+            component[start] = next;
+            while(top > 0) {
+                int u = stack[--top];
+                for(int k=offsets[u]; k<offsets[u + 1]; k++) {
+                    int v = targets[k];
+                    if(component[v] < 0) {
+                        component[v] = next;
+                        stack[top++] = v;
+                    }
+                }
+            }
+            next++;
+        }
+        return component;
+    }
+}
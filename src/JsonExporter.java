@@ -0,0 +1,314 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Streams test cases to the JSON data feed consumed by the React GUI.
+ * Nodes, links and logs are written straight to a buffered writer as they are visited,
+ * so memory use stays constant regardless of how many students or edges are exported.
+ * The output layout matches the array of case objects read by longhorn-gui/src/App.jsx.
+ */
+public class JsonExporter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+    private int casesWritten;
+    private Map<UniversityStudent, Integer> communities;
+
+    /**
+     * Opens the target file and writes the start of the JSON array.
+     *
+     * @param filename the path of the JSON file to create or overwrite
+     * @throws IOException if the file cannot be opened
+     */
+    public JsonExporter(String filename) throws IOException {
+        this(new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(filename)), StandardCharsets.UTF_8), BUFFER_SIZE));
+    }
+
+    /**
+     * Wraps an existing writer and writes the start of the JSON array.
+     *
+     * @param out the writer to stream JSON to
+     * @throws IOException if the writer fails
+     */
+    public JsonExporter(Writer out) throws IOException {
+        this.out = out;
+        this.casesWritten = 0;
+        out.write("[\n");
+    }
+
+    /**
+     * Tags every exported node with a "community" field, e.g. from CommunityDetection,
+     * so the GUI can colour clusters. Pass null to stop tagging.
+     *
+     * @param communities the community id of every student, may be null
+     */
+    public void setCommunities(Map<UniversityStudent, Integer> communities) {
+        this.communities = communities;
+    }
+
+    /**
+     * Writes one self-contained test case object with its nodes, links and logs.
+     * The graph is reused as-is; it must already contain every student in the list.
+     *
+     * @param caseId the numeric id of the case
+     * @param caseName the display name of the case
+     * @param students the students to emit as nodes, in output order
+     * @param graph the already built graph whose edges are emitted as links
+     * @param logs the execution logs to attach to the case, may be null
+     * @throws IOException if the writer fails
+     */
+    public void writeCase(int caseId, String caseName, List<UniversityStudent> students, StudentGraph graph, List<String> logs) throws IOException {
+        if(casesWritten > 0) {
+            out.write(",\n");
+        }
+        out.write("  {\n");
+        out.write("    \"caseId\": ");
+        out.write(Integer.toString(caseId));
+        out.write(",\n");
+        out.write("    \"caseName\": ");
+        writeString(out, caseName);
+        out.write(",\n");
+
+        // --- 1. Nodes ---
+        out.write("    \"nodes\": [\n");
+        for(int j=0; j<students.size(); j++) {
+            writeNode(out, students.get(j), communities);
+            out.write(j < students.size() - 1 ? ",\n" : "\n");
+        }
+        out.write("    ],\n");
+
+        // --- 2. Links ---
+        out.write("    \"links\": [\n");
+        boolean firstLink = true;
+        for(UniversityStudent s : students) {
+            List<StudentGraph.Edge> edges = graph == null ? null : graph.getNeighborView(s);
+            if(edges == null) {
+                continue;
+            }
+            for(StudentGraph.Edge e : edges) {
+                // Undirected graph: only emit the edge from the lexicographically smaller endpoint.
+                if(s.name.compareTo(e.getNeighbor().name) < 0) {
+                    if(!firstLink) {
+                        out.write(",\n");
+                    }
+                    writeLink(out, s, e);
+                    firstLink = false;
+                }
+            }
+        }
+        out.write("\n    ],\n");
+
+        // --- 3. Logs ---
+        writeLogs(logs);
+        casesWritten++;
+    }
+
+    /**
+     * Writes one test case read from a columnar student table. Nodes are written straight
+     * from the table columns in id order; links come from the graph built over the table's views.
+     *
+     * @param caseId the numeric id of the case
+     * @param caseName the display name of the case
+     * @param table the students to emit as nodes
+     * @param graph the graph built from the table, e.g. with new StudentGraph(table, weights)
+     * @param logs the execution logs to attach to the case, may be null
+     * @throws IOException if the writer fails
+     */
+    public void writeCase(int caseId, String caseName, StudentTable table, StudentGraph graph, List<String> logs) throws IOException {
+        if(casesWritten > 0) {
+            out.write(",\n");
+        }
+        out.write("  {\n");
+        out.write("    \"caseId\": ");
+        out.write(Integer.toString(caseId));
+        out.write(",\n");
+        out.write("    \"caseName\": ");
+        writeString(out, caseName);
+        out.write(",\n");
+
+        // --- 1. Nodes ---
+        out.write("    \"nodes\": [\n");
+        int n = table.size();
+        for(int id=0; id<n; id++) {
+            int roommate = table.roommate(id);
+            out.write("      {\n");
+            out.write("        \"id\": ");
+            writeString(out, table.name(id));
+            out.write(",\n        \"group\": ");
+            writeString(out, table.major(id));
+            out.write(",\n        \"roommate\": ");
+            writeString(out, roommate >= 0 ? table.name(roommate) : "None");
+            out.write(",\n        \"internships\": ");
+            writeStringArray(out, table.internships(id));
+            Integer community = communities == null ? null : communities.get(table.view(id));
+            if(community != null) {
+                out.write(",\n        \"community\": ");
+                out.write(community.toString());
+            }
+            out.write("\n      }");
+            out.write(id < n - 1 ? ",\n" : "\n");
+        }
+        out.write("    ],\n");
+
+        // --- 2. Links ---
+        out.write("    \"links\": [\n");
+        boolean firstLink = true;
+        for(int id=0; id<n && graph != null; id++) {
+            UniversityStudent s = table.view(id);
+            List<StudentGraph.Edge> edges = graph.getNeighborView(s);
+            if(edges == null) {
+                continue;
+            }
+            for(StudentGraph.Edge e : edges) {
+                // Undirected graph: only emit the edge from the lexicographically smaller endpoint.
+                if(s.name.compareTo(e.getNeighbor().name) < 0) {
+                    if(!firstLink) {
+                        out.write(",\n");
+                    }
+                    writeLink(out, s, e);
+                    firstLink = false;
+                }
+            }
+        }
+        out.write("\n    ],\n");
+
+        // --- 3. Logs ---
+        writeLogs(logs);
+        casesWritten++;
+    }
+
+    /**
+     * Writes the logs array and closes the case object.
+     */
+    private void writeLogs(List<String> logs) throws IOException {
+        out.write("    \"logs\": [\n");
+        if(logs != null) {
+            for(int k=0; k<logs.size(); k++) {
+                out.write("      ");
+                writeString(out, logs.get(k));
+                out.write(k < logs.size() - 1 ? ",\n" : "\n");
+            }
+        }
+        out.write("    ]\n");
+        out.write("  }");
+    }
+
+    /**
+     * Writes a single node object, with its community id when one is known.
+     *
+     * @param out the writer to append to
+     * @param s the student to emit
+     * @param communities the community id of every student, may be null
+     * @throws IOException if the writer fails
+     */
+    static void writeNode(Writer out, UniversityStudent s, Map<UniversityStudent, Integer> communities) throws IOException {
+        String roommateName = (s.getRoommate() != null) ? s.getRoommate().name : "None";
+        out.write("      {\n");
+        out.write("        \"id\": ");
+        writeString(out, s.name);
+        out.write(",\n        \"group\": ");
+        writeString(out, s.major);
+        out.write(",\n        \"roommate\": ");
+        writeString(out, roommateName);
+        out.write(",\n        \"internships\": ");
+        writeStringArray(out, s.previousInternships);
+        Integer community = communities == null ? null : communities.get(s);
+        if(community != null) {
+            out.write(",\n        \"community\": ");
+            out.write(community.toString());
+        }
+        out.write("\n      }");
+    }
+
+    /**
+     * Writes a single link object.
+     *
+     * @param out the writer to append to
+     * @param source the student the edge starts from
+     * @param e the edge to emit
+     * @throws IOException if the writer fails
+     */
+    static void writeLink(Writer out, UniversityStudent source, StudentGraph.Edge e) throws IOException {
+        out.write("      {\n");
+        out.write("        \"source\": ");
+        writeString(out, source.name);
+        out.write(",\n        \"target\": ");
+        writeString(out, e.getNeighbor().name);
+        out.write(",\n        \"value\": ");
+        out.write(Integer.toString(e.getWeight()));
+        out.write("\n      }");
+    }
+
+    /**
+     * Writes the end of the JSON array and closes the underlying writer.
+     *
+     * @throws IOException if the writer fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write("\n]");
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes an inline JSON array of strings, e.g. ["Google", "Amazon"].
+     *
+     * @param out the writer to append to
+     * @param list the strings to write, null is written as an empty array
+     * @throws IOException if the writer fails
+     */
+    static void writeStringArray(Writer out, List<String> list) throws IOException {
+        if(list == null || list.isEmpty()) {
+            out.write("[]");
+            return;
+        }
+        out.write('[');
+        for(int i=0; i<list.size(); i++) {
+            if(i > 0) {
+                out.write(", ");
+            }
+            writeString(out, list.get(i));
+        }
+        out.write(']');
+    }
+
+    /**
+     * Writes a quoted JSON string, escaping quotes, backslashes and control characters.
+     *
+     * @param out the writer to append to
+     * @param value the string to write, null is written as the JSON literal null
+     * @throws IOException if the writer fails
+     */
+    static void writeString(Writer out, String value) throws IOException {
+        if(value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for(int i=0; i<value.length(); i++) {
+            char c = value.charAt(i);
+            String escape;
+            if(c == '"') escape = "\\\"";
+            else if(c == '\\') escape = "\\\\";
+            else if(c == '\n') escape = "\\n";
+            else if(c == '\r') escape = "\\r";
+            else if(c == '\t') escape = "\\t";
+            else if(c < 0x20 || c == 0x2028 || c == 0x2029) escape = String.format("\\u%04x", (int) c);
+            else continue;
+
+            // Flush the unescaped run before the escape sequence.
+            out.write(value, start, i - start);
+            out.write(escape);
+            start = i + 1;
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+}
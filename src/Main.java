@@ -1,13 +1,15 @@
 import java.util.*;
 import java.util.concurrent.*;
-import java.io.FileWriter;
 import java.io.IOException;
 
 // Main.java - Self-contained testing & grading with multiple built‑in test cases.
 public class Main {
 
     // Abhirit: shared resource used by ChatThread and FriendRequestThread to upload messages.
-    public static List<String> executionLogs = new ArrayList<>();
+    // Synchronized because chat and friend request tasks (and striped or lock-free TaskLocks) append concurrently.
+    public static List<String> executionLogs = Collections.synchronizedList(new ArrayList<>());
+
+    private static final Metrics.Histogram EXPORT_TIME = Metrics.histogram("export.file.ns");
 
     public static void main(String[] args) {
         // Create a list of test cases.
@@ -40,6 +42,17 @@ public class Main {
         // Abhirit: Run and export the test cases to React folder
         String reactPath = "longhorn-gui/src/data.json";
         exportAllTestCasesToJSON(testCases, reactPath);
+
+        // Dump hot-path metrics when enabled with -Dlonghorn.metrics=true.
+        if (Metrics.isEnabled()) {
+            String metricsPath = System.getProperty("longhorn.metrics.file", "longhorn-metrics.txt");
+            try {
+                Metrics.dump(metricsPath);
+                System.out.println("Metrics written to " + metricsPath);
+            } catch (IOException e) {
+                System.err.println("Error writing metrics file: " + e.getMessage());
+            }
+        }
     }
 
     // Test Case 1: Two groups (Group 1 with four students having mutual preferences, Group 2 with a pair)
@@ -234,99 +247,17 @@ public class Main {
      * Each element in the array is a self-contained object with nodes, links, and logs.
      */
     public static void exportAllTestCasesToJSON(List<List<UniversityStudent>> allTestCases, String filename) {
-        StringBuilder json = new StringBuilder();
-        json.append("[\n"); // Start JSON Array
-
-        for (int i = 0; i < allTestCases.size(); i++) {
-            List<UniversityStudent> students = allTestCases.get(i);
-
-            // --- RE-RUN SIMULATION FOR VISUALIZATION ---
-            // We re-run these to ensure the logs and roommates are fresh and isolated for this specific case.
-            
-            // 1. Clear previous logs so this case has its own clean history
-            executionLogs.clear();
-
-            // 2. Run Gale-Shapley (Ensures roommate assignments are set)
-            GaleShapley.assignRoommates(students);
-
-            // 3. Run Threads (To populate the chat logs for the UI)
-            if (students.size() >= 2) {
-                runThreadsForExport(students.get(0), students.get(1));
-            }
-
-            // --- BUILD JSON OBJECT ---
-            json.append("  {\n");
-            json.append("    \"caseId\": ").append(i + 1).append(",\n");
-            json.append("    \"caseName\": \"Test Case ").append(i + 1).append("\",\n");
-
-            // --- 1. Nodes ---
-            json.append("    \"nodes\": [\n");
-            for (int j = 0; j < students.size(); j++) {
-                UniversityStudent s = students.get(j);
-                String roommateName = (s.getRoommate() != null) ? s.getRoommate().name : "None";
-                
-                json.append("      {\n");
-                json.append(String.format("        \"id\": \"%s\",\n", s.name));
-                json.append(String.format("        \"group\": \"%s\",\n", s.major));
-                json.append(String.format("        \"roommate\": \"%s\",\n", roommateName));
-                json.append(String.format("        \"internships\": %s\n", listToJson(s.previousInternships)));
-                json.append("      }");
-
-                if (j < students.size() - 1) json.append(",\n");
-                else json.append("\n");
-            }
-            json.append("    ],\n");
-
-            // --- 2. Links ---
-            json.append("    \"links\": [\n");
-            StudentGraph graph = new StudentGraph(students);
-            boolean firstLink = true;
-            for (UniversityStudent s : students) {
-                List<StudentGraph.Edge> edges = graph.getNeighbors(s);
-                if (edges != null) {
-                    for (StudentGraph.Edge e : edges) {
-                        // Undirected graph check: only add if name < neighborName
-                        if (s.name.compareTo(e.getNeighbor().name) < 0) {
-                            if (!firstLink) json.append(",\n");
-                            
-                            json.append("      {\n");
-                            json.append(String.format("        \"source\": \"%s\",\n", s.name));
-                            json.append(String.format("        \"target\": \"%s\",\n", e.getNeighbor().name));
-                            json.append(String.format("        \"value\": %d\n", e.getWeight()));
-                            json.append("      }");
-                            firstLink = false;
-                        }
-                    }
-                }
-            }
-            json.append("\n    ],\n");
-
-            // --- 3. Logs ---
-            json.append("    \"logs\": [\n");
-            if (executionLogs != null && !executionLogs.isEmpty()) {
-                for (int k = 0; k < executionLogs.size(); k++) {
-                    String log = executionLogs.get(k).replace("\"", "\\\""); // Escape quotes
-                    json.append("      \"").append(log).append("\"");
-                    if (k < executionLogs.size() - 1) json.append(",\n");
-                    else json.append("\n");
-                }
-            }
-            json.append("    ]\n");
-
-            json.append("  }"); // End of this Test Case Object
-
-            // Add comma if there are more test cases
-            if (i < allTestCases.size() - 1) {
-                json.append(",\n");
-            }
-        }
-
-        json.append("\n]"); // End JSON Array
-
-        // --- Write to File ---
-        try (FileWriter file = new FileWriter(filename)) {
-            file.write(json.toString());
+        // Matching, graph build and export overlap across cases, and each runs once per case.
+        long startTime = Metrics.startTimer();
+        Pipeline pipeline = new Pipeline();
+        pipeline.setPairsOutput(System.out);
+        try {
+            Pipeline.Report report = pipeline.run(allTestCases, filename);
+            EXPORT_TIME.recordSince(startTime);
             System.out.println("Successfully exported ALL test cases to " + filename);
+            if (Metrics.isEnabled()) {
+                System.out.println(report);
+            }
         } catch (IOException e) {
             System.err.println("Error writing JSON file: " + e.getMessage());
         }
@@ -335,31 +266,20 @@ public class Main {
     /**
      * Helper function to run threads safely during export.
      * We re-run this to capture logs specifically for the generated JSON.
+     * The tasks run on the caller's executor, which is reused across cases; tasks still
+     * running after two seconds are cancelled.
+     *
+     * @param executor the executor to run the chat and friend request tasks on
+     * @param s1 the first student
+     * @param s2 the second student
+     * @throws InterruptedException if interrupted while waiting for the tasks
      */
-    private static void runThreadsForExport(UniversityStudent s1, UniversityStudent s2) {
-        ExecutorService executor = Executors.newFixedThreadPool(4);
-        try {
-            executor.submit(new FriendRequestThread(s1, s2));
-            executor.submit(new ChatThread(s1, s2, "Hello from " + s1.name));
-            executor.submit(new FriendRequestThread(s2, s1));
-            executor.submit(new ChatThread(s2, s1, "Hi back from " + s2.name));
-            executor.shutdown();
-            executor.awaitTermination(2, TimeUnit.SECONDS); // Wait for logs to populate
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-        }
-    }
-
-    // --- Helper Method ---
-    // Returns a simple inline JSON array: ["Google", "Amazon"]
-    private static String listToJson(List<String> list) {
-        if (list == null || list.isEmpty()) return "[]";
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < list.size(); i++) {
-            sb.append("\"").append(list.get(i)).append("\"");
-            if (i < list.size() - 1) sb.append(", ");
-        }
-        sb.append("]");
-        return sb.toString();
+    static void runThreadsForExport(ExecutorService executor, UniversityStudent s1, UniversityStudent s2) throws InterruptedException {
+        List<Callable<Object>> tasks = Arrays.asList(
+                Executors.callable(new FriendRequestThread(s1, s2)),
+                Executors.callable(new ChatThread(s1, s2, "Hello from " + s1.name)),
+                Executors.callable(new FriendRequestThread(s2, s1)),
+                Executors.callable(new ChatThread(s2, s1, "Hi back from " + s2.name)));
+        executor.invokeAll(tasks, 2, TimeUnit.SECONDS); // Wait for logs to populate
     }
 }
@@ -0,0 +1,278 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lightweight instrumentation for the hot paths of the network: counters, histograms and timers.
+ *
+ * Instruments are registered once by name, typically into static final fields of the class
+ * they measure, and are safe to update from any number of threads. Counters are striped
+ * LongAdders. Histograms use HDR-style log-linear buckets (8 sub-buckets per power of two,
+ * so recorded values are accurate to within 12.5%) over an AtomicLongArray.
+ *
+ * Recording is off unless the JVM is started with -Dlonghorn.metrics=true or setEnabled(true)
+ * is called. When off, every update is a single volatile read and a branch.
+ */
+public final class Metrics {
+    private static volatile boolean enabled = Boolean.getBoolean("longhorn.metrics");
+
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Returns the counter with the given name, creating it on first use.
+     *
+     * @param name the metric name, e.g. "graph.edges.added"
+     * @return the shared counter
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it on first use.
+     * Names ending in ".ns" are reported as durations.
+     *
+     * @param name the metric name, e.g. "referral.latency.ns"
+     * @return the shared histogram
+     */
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, Histogram::new);
+    }
+
+    /**
+     * Starts a timer. Pass the result to Histogram.recordSince when the timed work ends.
+     *
+     * @return the current nano time, or 0 when metrics are disabled
+     */
+    public static long startTimer() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Clears every registered instrument.
+     */
+    public static void reset() {
+        for(Counter c : counters.values()) {
+            c.adder.reset();
+        }
+        for(Histogram h : histograms.values()) {
+            h.reset();
+        }
+    }
+
+    /**
+     * Writes a plain-text report of every instrument, one per line, sorted by name.
+     *
+     * @param out the writer to report to
+     * @throws IOException if the writer fails
+     */
+    public static void dump(Writer out) throws IOException {
+        for(Counter c : new TreeMap<>(counters).values()) {
+            out.write(c.toString());
+            out.write('\n');
+        }
+        for(Histogram h : new TreeMap<>(histograms).values()) {
+            out.write(h.toString());
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the report to a local file, replacing any previous report.
+     *
+     * @param filename the path of the report file
+     * @throws IOException if the file cannot be written
+     */
+    public static void dump(String filename) throws IOException {
+        try (Writer out = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8)) {
+            dump(out);
+        }
+    }
+
+    /**
+     * Returns the report as a string.
+     * @return the plain-text report
+     */
+    public static String report() {
+        StringWriter out = new StringWriter();
+        try {
+            dump(out);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * A monotonically increasing count.
+     */
+    public static final class Counter {
+        private final String name;
+        private final LongAdder adder = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            if(enabled) {
+                adder.increment();
+            }
+        }
+
+        public void add(long delta) {
+            if(enabled) {
+                adder.add(delta);
+            }
+        }
+
+        public long get() {
+            return adder.sum();
+        }
+
+        @Override
+        public String toString() {
+            return name + " count=" + adder.sum();
+        }
+    }
+
+    /**
+     * A distribution of non-negative values with percentile estimates.
+     */
+    public static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Histogram(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records one value. Negative values are recorded as 0.
+         * @param value the value to record
+         */
+        public void record(long value) {
+            if(!enabled) {
+                return;
+            }
+            long v = Math.max(0, value);
+            buckets.incrementAndGet(bucketOf(v));
+            count.increment();
+            sum.add(v);
+            max.accumulate(v);
+        }
+
+        /**
+         * Records the time elapsed since a timer started with Metrics.startTimer.
+         * @param startNanos the value returned by startTimer
+         */
+        public void recordSince(long startNanos) {
+            if(enabled && startNanos != 0L) {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0.0 : (double) sum.sum() / n;
+        }
+
+        /**
+         * Estimates a percentile as the upper bound of the bucket holding it, capped at the maximum.
+         *
+         * @param percentile the percentile between 0 and 100
+         * @return the estimated value, or 0 if nothing was recorded
+         */
+        public long getPercentile(double percentile) {
+            long n = count.sum();
+            if(n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+            long seen = 0;
+            for(int b=0; b<BUCKETS; b++) {
+                seen += buckets.get(b);
+                if(seen >= rank) {
+                    return Math.min(upperBound(b), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private void reset() {
+            for(int b=0; b<BUCKETS; b++) {
+                buckets.set(b, 0);
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+
+        /**
+         * Values below 8 get a bucket each; above that every power of two is split into 8 buckets.
+         */
+        static int bucketOf(long v) {
+            if(v < SUB_BUCKETS) {
+                return (int) v;
+            }
+            int magnitude = 63 - Long.numberOfLeadingZeros(v);
+            int top = (int) (v >>> (magnitude - SUB_BUCKET_BITS));
+            return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+        }
+
+        static long upperBound(int bucket) {
+            if(bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long top = bucket % SUB_BUCKETS + SUB_BUCKETS;
+            int shift = magnitude - SUB_BUCKET_BITS;
+            return ((top + 1) << shift) - 1;
+        }
+
+        @Override
+        public String toString() {
+            if(name.endsWith(".ns")) {
+                return String.format("%s count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                        name, getCount(), getMean() / 1e6, getPercentile(50) / 1e6, getPercentile(90) / 1e6,
+                        getPercentile(99) / 1e6, getMax() / 1e6);
+            }
+            return String.format("%s count=%d mean=%.2f p50=%d p90=%d p99=%d max=%d",
+                    name, getCount(), getMean(), getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+        }
+    }
+}
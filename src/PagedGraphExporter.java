@@ -0,0 +1,423 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Exports the student graph as a paged dataset instead of one monolithic data.json.
+ * The output directory holds an index.json describing every shard, one shard file per
+ * major (or connected component, or detected community) split into fixed-size pages,
+ * and optional ego-network extracts around chosen students. A viewer only has to fetch the shards it is showing.
+ * Shards whose content did not change since the previous export are not rewritten.
+ */
+public class PagedGraphExporter {
+    /**
+     * Strategy used to group students into shards.
+     */
+    public enum ShardBy { MAJOR, COMPONENT, COMMUNITY }
+
+    public static final int DEFAULT_PAGE_SIZE = 2000;
+    private static final String INDEX_FILE = "index.json";
+    private static final Pattern INDEX_ENTRY = Pattern.compile("\"file\": \"([^\"]+)\".*\"hash\": \"([0-9a-f]+)\"");
+
+    private final Path directory;
+    private ShardBy shardBy;
+    private int pageSize;
+    private Map<UniversityStudent, Integer> communities;
+    private int shardsWritten;
+    private int shardsSkipped;
+
+    /**
+     * Constructs an exporter that writes into the given directory, sharding by major.
+     *
+     * @param directory the directory to write the index and shard files to
+     */
+    public PagedGraphExporter(String directory) {
+        this.directory = Paths.get(directory);
+        this.shardBy = ShardBy.MAJOR;
+        this.pageSize = DEFAULT_PAGE_SIZE;
+    }
+
+    public void setShardBy(ShardBy shardBy) {
+        this.shardBy = shardBy;
+    }
+
+    public void setPageSize(int pageSize) {
+        if(pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Sets the community of every student. Nodes are tagged with their community id and,
+     * with ShardBy.COMMUNITY, students are sharded by community.
+     *
+     * @param communities the community id of every student, e.g. from CommunityDetection
+     */
+    public void setCommunities(Map<UniversityStudent, Integer> communities) {
+        this.communities = communities;
+    }
+
+    /**
+     * Returns how many files the last export actually wrote.
+     * @return number of shard, ego or index files written
+     */
+    public int getShardsWritten() {
+        return shardsWritten;
+    }
+
+    /**
+     * Returns how many files the last export left untouched because their content was unchanged.
+     * @return number of files skipped
+     */
+    public int getShardsSkipped() {
+        return shardsSkipped;
+    }
+
+    /**
+     * Writes the index and all shards for the given students and graph.
+     * Each shard lists its nodes, the links between its own nodes, and boundary links
+     * to nodes in other shards tagged with the shard that holds the other endpoint.
+     *
+     * @param students the students to export
+     * @param graph the already built graph holding their connections
+     * @throws IOException if a file cannot be written
+     */
+    public void export(List<UniversityStudent> students, StudentGraph graph) throws IOException {
+        Files.createDirectories(directory);
+        shardsWritten = 0;
+        shardsSkipped = 0;
+        Map<String, String> previousHashes = readIndexHashes();
+
+        // Group students, then split every group into pages of at most pageSize students.
+        Map<String, List<UniversityStudent>> groups;
+        if(shardBy == ShardBy.COMPONENT) {
+            groups = groupByComponent(students, graph);
+        }
+        else if(shardBy == ShardBy.COMMUNITY) {
+            if(communities == null) {
+                throw new IllegalStateException("Sharding by community requires setCommunities()");
+            }
+            groups = groupByCommunity(students, communities);
+        }
+        else {
+            groups = groupByMajor(students);
+        }
+        Map<UniversityStudent, String> shardOf = new HashMap<>();
+        Map<String, List<UniversityStudent>> shards = new LinkedHashMap<>();
+        Map<String, String> shardGroup = new HashMap<>();
+        Set<String> usedSlugs = new HashSet<>();
+        for(Map.Entry<String, List<UniversityStudent>> group : groups.entrySet()) {
+            String slug = uniqueSlug(group.getKey(), usedSlugs);
+            List<UniversityStudent> members = group.getValue();
+            members.sort(Comparator.comparing(s -> s.name));
+            for(int page=0; page*pageSize < members.size(); page++) {
+                String shardId = slug + "-" + page;
+                List<UniversityStudent> pageMembers = members.subList(page*pageSize, Math.min(members.size(), (page+1)*pageSize));
+                shards.put(shardId, pageMembers);
+                shardGroup.put(shardId, group.getKey());
+                for(UniversityStudent s : pageMembers) {
+                    shardOf.put(s, shardId);
+                }
+            }
+        }
+
+        StringWriter index = new StringWriter();
+        index.write("{\n");
+        index.write("  \"shardBy\": \"" + shardBy.name().toLowerCase() + "\",\n");
+        index.write("  \"pageSize\": " + pageSize + ",\n");
+        index.write("  \"nodeCount\": " + students.size() + ",\n");
+        index.write("  \"shards\": [\n");
+        int count = 0;
+        Set<String> currentFiles = new HashSet<>();
+        for(Map.Entry<String, List<UniversityStudent>> shard : shards.entrySet()) {
+            String shardId = shard.getKey();
+            String file = "shard-" + shardId + ".json";
+            currentFiles.add(file);
+            int[] linkCounts = new int[2];
+            byte[] content = renderShard(shardId, shardGroup.get(shardId), shard.getValue(), shardOf, graph, linkCounts);
+            String hash = writeIfChanged(file, content, previousHashes.get(file));
+
+            index.write(count++ > 0 ? ",\n" : "");
+            index.write("    {\"id\": ");
+            JsonExporter.writeString(index, shardId);
+            index.write(", \"group\": ");
+            JsonExporter.writeString(index, shardGroup.get(shardId));
+            index.write(", \"file\": \"" + file + "\", \"nodes\": " + shard.getValue().size()
+                    + ", \"links\": " + linkCounts[0] + ", \"boundaryLinks\": " + linkCounts[1] + ", \"hash\": \"" + hash + "\"}");
+        }
+        index.write("\n  ]\n}\n");
+
+        // Drop shards from a previous export that no longer exist.
+        for(String stale : previousHashes.keySet()) {
+            if(stale.startsWith("shard-") && !currentFiles.contains(stale)) {
+                Files.deleteIfExists(directory.resolve(stale));
+            }
+        }
+        writeIfChanged(INDEX_FILE, index.toString().getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    /**
+     * Writes the ego network of a student: every student within the given number of hops
+     * and the links between them. The file is named after the centre student, with a short
+     * hash of the full name so that names with the same slug get different files.
+     *
+     * @param center the student at the centre of the extract
+     * @param hops the maximum number of hops from the centre to include
+     * @param graph the already built graph holding the connections
+     * @return the name of the file written inside the export directory
+     * @throws IOException if the file cannot be written
+     */
+    public String exportEgoNetwork(UniversityStudent center, int hops, StudentGraph graph) throws IOException {
+        if(center == null || graph == null || graph.getNeighborView(center) == null) {
+            throw new IllegalArgumentException("Student is not part of the graph.");
+        }
+        Files.createDirectories(directory);
+
+        // Breadth-first search bounded by the hop count.
+        Set<UniversityStudent> included = new LinkedHashSet<>();
+        included.add(center);
+        List<UniversityStudent> frontier = Collections.singletonList(center);
+        for(int hop=0; hop<hops && !frontier.isEmpty(); hop++) {
+            List<UniversityStudent> next = new ArrayList<>();
+            for(UniversityStudent s : frontier) {
+                for(StudentGraph.Edge e : graph.getNeighborView(s)) {
+                    if(included.add(e.getNeighbor())) {
+                        next.add(e.getNeighbor());
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            out.write("{\n  \"center\": ");
+            JsonExporter.writeString(out, center.name);
+            out.write(",\n  \"hops\": " + hops + ",\n  \"nodes\": [\n");
+            int count = 0;
+            for(UniversityStudent s : included) {
+                out.write(count++ > 0 ? ",\n" : "");
+                JsonExporter.writeNode(out, s, communities);
+            }
+            out.write("\n  ],\n  \"links\": [\n");
+            count = 0;
+            for(UniversityStudent s : included) {
+                for(StudentGraph.Edge e : graph.getNeighborView(s)) {
+                    if(included.contains(e.getNeighbor()) && s.name.compareTo(e.getNeighbor().name) < 0) {
+                        out.write(count++ > 0 ? ",\n" : "");
+                        JsonExporter.writeLink(out, s, e);
+                    }
+                }
+            }
+            out.write("\n  ]\n}\n");
+        }
+
+        CRC32 nameHash = new CRC32();
+        nameHash.update(center.name.getBytes(StandardCharsets.UTF_8));
+        String file = String.format(Locale.ROOT, "ego-%s-%08x.json", slug(center.name), nameHash.getValue());
+        writeIfChanged(file, bytes.toByteArray(), null);
+        return file;
+    }
+
+    /**
+     * Renders a single shard into memory. Only one page is held at a time.
+     *
+     * @param linkCounts receives the number of internal links at [0] and boundary links at [1]
+     */
+    private byte[] renderShard(String shardId, String group, List<UniversityStudent> members, Map<UniversityStudent, String> shardOf,
+                               StudentGraph graph, int[] linkCounts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            out.write("{\n  \"shard\": ");
+            JsonExporter.writeString(out, shardId);
+            out.write(",\n  \"group\": ");
+            JsonExporter.writeString(out, group);
+            out.write(",\n  \"nodes\": [\n");
+            for(int i=0; i<members.size(); i++) {
+                out.write(i > 0 ? ",\n" : "");
+                JsonExporter.writeNode(out, members.get(i), communities);
+            }
+
+            // Internal links are emitted once, from the lexicographically smaller endpoint.
+            out.write("\n  ],\n  \"links\": [\n");
+            for(UniversityStudent s : members) {
+                for(StudentGraph.Edge e : edgesOf(graph, s)) {
+                    if(shardId.equals(shardOf.get(e.getNeighbor())) && s.name.compareTo(e.getNeighbor().name) < 0) {
+                        out.write(linkCounts[0]++ > 0 ? ",\n" : "");
+                        JsonExporter.writeLink(out, s, e);
+                    }
+                }
+            }
+
+            // Boundary links appear in both shards so each one can be drawn on its own.
+            out.write("\n  ],\n  \"boundaryLinks\": [\n");
+            for(UniversityStudent s : members) {
+                for(StudentGraph.Edge e : edgesOf(graph, s)) {
+                    String otherShard = shardOf.get(e.getNeighbor());
+                    if(otherShard != null && !shardId.equals(otherShard)) {
+                        out.write(linkCounts[1]++ > 0 ? ",\n" : "");
+                        out.write("    {\"source\": ");
+                        JsonExporter.writeString(out, s.name);
+                        out.write(", \"target\": ");
+                        JsonExporter.writeString(out, e.getNeighbor().name);
+                        out.write(", \"value\": " + e.getWeight() + ", \"targetShard\": ");
+                        JsonExporter.writeString(out, otherShard);
+                        out.write("}");
+                    }
+                }
+            }
+            out.write("\n  ]\n}\n");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<StudentGraph.Edge> edgesOf(StudentGraph graph, UniversityStudent s) {
+        List<StudentGraph.Edge> edges = graph == null ? null : graph.getNeighborView(s);
+        return edges == null ? Collections.emptyList() : edges;
+    }
+
+    /**
+     * Writes a file unless its hash matches the previous export. Files are written to a
+     * temporary name first and moved into place so a reader never sees a partial shard.
+     *
+     * @return the hash of the content
+     */
+    private String writeIfChanged(String file, byte[] content, String previousHash) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        // Fixed-width fields, so different (crc, length) pairs never print the same.
+        String hash = String.format(Locale.ROOT, "%08x-%08x", crc.getValue(), content.length);
+        Path target = directory.resolve(file);
+        if(previousHash == null && Files.exists(target) && Arrays.equals(Files.readAllBytes(target), content)) {
+            shardsSkipped++;
+            return hash;
+        }
+        if(hash.equals(previousHash) && Files.exists(target)) {
+            shardsSkipped++;
+            return hash;
+        }
+        Path temp = directory.resolve(file + ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        shardsWritten++;
+        return hash;
+    }
+
+    /**
+     * Reads the shard hashes recorded by the previous export, if any.
+     */
+    private Map<String, String> readIndexHashes() throws IOException {
+        Map<String, String> hashes = new HashMap<>();
+        Path index = directory.resolve(INDEX_FILE);
+        if(!Files.exists(index)) {
+            return hashes;
+        }
+        for(String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+            Matcher m = INDEX_ENTRY.matcher(line);
+            if(m.find()) {
+                hashes.put(m.group(1), m.group(2));
+            }
+        }
+        return hashes;
+    }
+
+    private static Map<String, List<UniversityStudent>> groupByMajor(List<UniversityStudent> students) {
+        Map<String, List<UniversityStudent>> groups = new TreeMap<>();
+        for(UniversityStudent s : students) {
+            groups.computeIfAbsent(s.major, k -> new ArrayList<>()).add(s);
+        }
+        return groups;
+    }
+
+    /**
+     * Groups students by community id, in increasing id order. Students without a community share one group.
+     */
+    private static Map<String, List<UniversityStudent>> groupByCommunity(List<UniversityStudent> students, Map<UniversityStudent, Integer> communities) {
+        Map<Integer, List<UniversityStudent>> byId = new TreeMap<>();
+        for(UniversityStudent s : students) {
+            byId.computeIfAbsent(communities.getOrDefault(s, -1), k -> new ArrayList<>()).add(s);
+        }
+        Map<String, List<UniversityStudent>> groups = new LinkedHashMap<>();
+        for(Map.Entry<Integer, List<UniversityStudent>> entry : byId.entrySet()) {
+            groups.put(entry.getKey() < 0 ? "unassigned" : "community " + entry.getKey(), entry.getValue());
+        }
+        return groups;
+    }
+
+    /**
+     * Groups students by connected component, numbered in order of first appearance.
+     */
+    private static Map<String, List<UniversityStudent>> groupByComponent(List<UniversityStudent> students, StudentGraph graph) {
+        Map<String, List<UniversityStudent>> groups = new LinkedHashMap<>();
+        Set<UniversityStudent> seen = new HashSet<>();
+        for(UniversityStudent start : students) {
+            if(!seen.add(start)) {
+                continue;
+            }
+            List<UniversityStudent> component = new ArrayList<>();
+            ArrayDeque<UniversityStudent> queue = new ArrayDeque<>();
+            queue.add(start);
+            while(!queue.isEmpty()) {
+                UniversityStudent s = queue.poll();
+                component.add(s);
+                for(StudentGraph.Edge e : edgesOf(graph, s)) {
+                    if(seen.add(e.getNeighbor())) {
+                        queue.add(e.getNeighbor());
+                    }
+                }
+            }
+            groups.put("component " + groups.size(), component);
+        }
+        return groups;
+    }
+
+    private static String uniqueSlug(String key, Set<String> used) {
+        String base = slug(key);
+        String candidate = base;
+        for(int i=2; !used.add(candidate); i++) {
+            candidate = base + "_" + i;
+        }
+        return candidate;
+    }
+
+    private static String slug(String key) {
+        String s = key == null ? "" : key.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("^-+|-+$", "");
+        return s.isEmpty() ? "group" : s;
+    }
+
+    /**
+     * Command line entry point: PagedGraphExporter inputFile outputDir [major|component|community] [egoStudent [hops]]
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("Usage: java PagedGraphExporter <inputFile> <outputDir> [major|component|community] [egoStudent [hops]]");
+            return;
+        }
+        List<UniversityStudent> students = DataParser.parseStudents(args[0]);
+        GaleShapley.assignRoommates(students);
+        StudentGraph graph = new StudentGraph(students);
+
+        PagedGraphExporter exporter = new PagedGraphExporter(args[1]);
+        if(args.length > 2) {
+            exporter.setShardBy(ShardBy.valueOf(args[2].toUpperCase(Locale.ROOT)));
+        }
+        if(exporter.shardBy == ShardBy.COMMUNITY) {
+            exporter.setCommunities(new CommunityDetection(graph).louvain());
+        }
+        exporter.export(students, graph);
+        if(args.length > 3) {
+            for(UniversityStudent s : students) {
+                if(s.name.equals(args[3])) {
+                    exporter.exportEgoNetwork(s, args.length > 4 ? Integer.parseInt(args[4]) : 2, graph);
+                }
+            }
+        }
+        System.out.println("Exported " + students.size() + " students to " + args[1] + " (" + exporter.getShardsWritten()
+                + " files written, " + exporter.getShardsSkipped() + " unchanged)");
+    }
+}
@@ -0,0 +1,415 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs parsing, graph construction, roommate matching and JSON export as concurrent stages,
+ * so later stages start on a case as soon as their input is ready instead of waiting for the
+ * whole run to finish the previous stage.
+ *
+ * Each stage is one thread, connected to the next by a bounded queue: a stage that gets
+ * ahead blocks on its full output queue (backpressure) rather than buffering unboundedly.
+ * Parsed students travel in batches, and the graph stage grows each case's graph batch by
+ * batch with StudentGraph.addStudents while the rest of the file is still being parsed.
+ * Matching needs a complete case, so it runs once the last batch of a case is in the graph,
+ * then refreshRoommates adds the roommate weights the graph could not know about yet. The
+ * export stage runs the chat and friend request tasks for the case log, on a task pool the
+ * pipeline creates once per run, and writes the case. Every stage runs once per case; the
+ * exporter reuses the graph and matching.
+ *
+ * Usage: java Pipeline &lt;outputFile&gt; &lt;dataset&gt; [dataset...]
+ */
+public class Pipeline {
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+    // One thread per chat or friend request task of a case.
+    private static final int EXPORT_TASK_THREADS = 4;
+
+    private static final Batch END_OF_INPUT = new Batch(-1, Collections.emptyList(), true);
+    private static final BuiltCase END_OF_CASES = new BuiltCase(-1, null, null);
+
+    private final int batchSize;
+    private final int queueCapacity;
+    private PrintStream pairsOut;
+
+    /**
+     * Timing of one stage over a whole run.
+     */
+    public static final class StageTiming {
+        private final String name;
+        private long items;
+        private long totalNanos;
+        private long waitingNanos;
+        private long blockedNanos;
+
+        private StageTiming(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of students the stage processed.
+         * @return the item count
+         */
+        public long getItems() {
+            return items;
+        }
+
+        /**
+         * Returns the time spent working, excluding time waiting for input or for room downstream.
+         * @return the busy time in nanoseconds
+         */
+        public long getBusyNanos() {
+            return totalNanos - waitingNanos - blockedNanos;
+        }
+
+        /**
+         * Returns the time spent waiting for the previous stage.
+         * @return the starved time in nanoseconds
+         */
+        public long getWaitingNanos() {
+            return waitingNanos;
+        }
+
+        /**
+         * Returns the time spent blocked on a full output queue.
+         * @return the backpressure time in nanoseconds
+         */
+        public long getBlockedNanos() {
+            return blockedNanos;
+        }
+    }
+
+    /**
+     * Per-stage timings of one run.
+     */
+    public static final class Report {
+        private final List<StageTiming> stages;
+        private final long wallNanos;
+
+        private Report(List<StageTiming> stages, long wallNanos) {
+            this.stages = Collections.unmodifiableList(stages);
+            this.wallNanos = wallNanos;
+        }
+
+        public List<StageTiming> getStages() {
+            return stages;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "%-8s %10s %10s %10s %10s%n", "stage", "items", "busy ms", "waiting ms", "blocked ms"));
+            long busySum = 0;
+            for(StageTiming t : stages) {
+                sb.append(String.format(Locale.ROOT, "%-8s %10d %10.1f %10.1f %10.1f%n", t.name, t.items,
+                        t.getBusyNanos() / 1e6, t.waitingNanos / 1e6, t.blockedNanos / 1e6));
+                busySum += t.getBusyNanos();
+            }
+            sb.append(String.format(Locale.ROOT, "wall %.1f ms, sum of busy time %.1f ms", wallNanos / 1e6, busySum / 1e6));
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Feeds the students of one case to a handler.
+     */
+    private interface CaseSource {
+        void feed(DataParser.StudentHandler handler) throws IOException;
+    }
+
+    private static final class CaseInput {
+        final String name;
+        final CaseSource source;
+
+        CaseInput(String name, CaseSource source) {
+            this.name = name;
+            this.source = source;
+        }
+    }
+
+    private static final class Batch {
+        final int caseIndex;
+        final List<UniversityStudent> students;
+        final boolean last;
+
+        Batch(int caseIndex, List<UniversityStudent> students, boolean last) {
+            this.caseIndex = caseIndex;
+            this.students = students;
+            this.last = last;
+        }
+    }
+
+    private static final class BuiltCase {
+        final int caseIndex;
+        final List<UniversityStudent> students;
+        final StudentGraph graph;
+
+        BuiltCase(int caseIndex, List<UniversityStudent> students, StudentGraph graph) {
+            this.caseIndex = caseIndex;
+            this.students = students;
+            this.graph = graph;
+        }
+    }
+
+    /**
+     * Constructs a pipeline with the default batch size and queue capacity.
+     */
+    public Pipeline() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructs a pipeline.
+     *
+     * @param batchSize the number of students per parsed batch
+     * @param queueCapacity the number of batches or cases each queue holds before its producer blocks
+     */
+    public Pipeline(int batchSize, int queueCapacity) {
+        if(batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if(queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        }
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Sets where the matching stage prints roommate pairs. By default pairs are not printed.
+     * @param pairsOut the stream to print pairs to, or null
+     */
+    public void setPairsOutput(PrintStream pairsOut) {
+        this.pairsOut = pairsOut;
+    }
+
+    /**
+     * Runs the pipeline over in-memory cases, named "Test Case 1", "Test Case 2" and so on.
+     *
+     * @param cases the students of every case
+     * @param outputFile the JSON file to write
+     * @return the stage timings
+     * @throws IOException if the output cannot be written
+     */
+    public Report run(List<List<UniversityStudent>> cases, String outputFile) throws IOException {
+        List<CaseInput> inputs = new ArrayList<>();
+        for(int i=0; i<cases.size(); i++) {
+            List<UniversityStudent> students = cases.get(i);
+            inputs.add(new CaseInput("Test Case " + (i + 1), handler -> {
+                for(UniversityStudent s : students) {
+                    handler.accept(s);
+                }
+            }));
+        }
+        return execute(inputs, outputFile);
+    }
+
+    /**
+     * Runs the pipeline over dataset files in the DataParser text format, one case per file,
+     * each named after its file.
+     *
+     * @param datasets the dataset files
+     * @param outputFile the JSON file to write
+     * @return the stage timings
+     * @throws IOException if a dataset cannot be read or the output cannot be written
+     */
+    public Report runFiles(List<String> datasets, String outputFile) throws IOException {
+        List<CaseInput> inputs = new ArrayList<>();
+        for(String dataset : datasets) {
+            inputs.add(new CaseInput(new File(dataset).getName(), handler -> DataParser.parseStudents(dataset, handler)));
+        }
+        return execute(inputs, outputFile);
+    }
+
+    private Report execute(List<CaseInput> inputs, String outputFile) throws IOException {
+        BlockingQueue<Batch> parsed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BuiltCase> built = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BuiltCase> matched = new ArrayBlockingQueue<>(queueCapacity);
+        StageTiming parse = new StageTiming("parse");
+        StageTiming graph = new StageTiming("graph");
+        StageTiming match = new StageTiming("match");
+        StageTiming export = new StageTiming("export");
+        ExecutorService exportTasks = Executors.newFixedThreadPool(EXPORT_TASK_THREADS);
+
+        List<Callable<Void>> stages = Arrays.asList(
+                timed(parse, () -> parseStage(inputs, parsed, parse)),
+                timed(graph, () -> graphStage(parsed, built, graph)),
+                timed(match, () -> matchStage(built, matched, match)),
+                timed(export, () -> exportStage(inputs, matched, outputFile, exportTasks, export)));
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(stages.size());
+        try {
+            CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+            for(Callable<Void> stage : stages) {
+                completion.submit(stage);
+            }
+            // A failed stage would leave its neighbours blocked on a queue, so the first failure
+            // ends the run and the finally block interrupts the rest.
+            for(int i=0; i<stages.size(); i++) {
+                completion.take().get();
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pipeline interrupted", e);
+        }
+        catch(ExecutionException e) {
+            if(e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Pipeline stage failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+            exportTasks.shutdownNow();
+        }
+
+        List<StageTiming> timings = Arrays.asList(parse, graph, match, export);
+        for(StageTiming t : timings) {
+            Metrics.histogram("pipeline." + t.name + ".ns").record(t.getBusyNanos());
+        }
+        return new Report(timings, System.nanoTime() - start);
+    }
+
+    private interface StageBody {
+        void run() throws IOException, InterruptedException;
+    }
+
+    private static Callable<Void> timed(StageTiming timing, StageBody body) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                body.run();
+            }
+            finally {
+                timing.totalNanos = System.nanoTime() - start;
+            }
+            return null;
+        };
+    }
+
+    private static <T> T take(BlockingQueue<T> queue, StageTiming timing) throws InterruptedException {
+        long start = System.nanoTime();
+        T item = queue.take();
+        timing.waitingNanos += System.nanoTime() - start;
+        return item;
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item, StageTiming timing) throws InterruptedException {
+        long start = System.nanoTime();
+        queue.put(item);
+        timing.blockedNanos += System.nanoTime() - start;
+    }
+
+    private void parseStage(List<CaseInput> inputs, BlockingQueue<Batch> out, StageTiming timing) throws IOException, InterruptedException {
+        for(int i=0; i<inputs.size(); i++) {
+            int caseIndex = i;
+            List<UniversityStudent> batch = new ArrayList<>(batchSize);
+            inputs.get(i).source.feed(student -> {
+                batch.add(student);
+                timing.items++;
+                if(batch.size() == batchSize) {
+                    try {
+                        put(out, new Batch(caseIndex, new ArrayList<>(batch), false), timing);
+                    }
+                    catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Parse stage interrupted");
+                    }
+                    batch.clear();
+                }
+            });
+            put(out, new Batch(caseIndex, batch, true), timing);
+        }
+        put(out, END_OF_INPUT, timing);
+    }
+
+    private void graphStage(BlockingQueue<Batch> in, BlockingQueue<BuiltCase> out, StageTiming timing) throws InterruptedException {
+        StudentGraph graph = null;
+        List<UniversityStudent> students = null;
+        while(true) {
+            Batch batch = take(in, timing);
+            if(batch == END_OF_INPUT) {
+                put(out, END_OF_CASES, timing);
+                return;
+            }
+            if(graph == null) {
+                graph = new StudentGraph();
+                students = new ArrayList<>();
+            }
+            students.addAll(batch.students);
+            graph.addStudents(batch.students);
+            timing.items += batch.students.size();
+            if(batch.last) {
+                put(out, new BuiltCase(batch.caseIndex, students, graph), timing);
+                graph = null;
+                students = null;
+            }
+        }
+    }
+
+    private void matchStage(BlockingQueue<BuiltCase> in, BlockingQueue<BuiltCase> out, StageTiming timing) throws InterruptedException {
+        while(true) {
+            BuiltCase c = take(in, timing);
+            if(c == END_OF_CASES) {
+                put(out, END_OF_CASES, timing);
+                return;
+            }
+            GaleShapley.assignRoommates(c.students, pairsOut);
+            c.graph.refreshRoommates();
+            timing.items += c.students.size();
+            put(out, c, timing);
+        }
+    }
+
+    private void exportStage(List<CaseInput> inputs, BlockingQueue<BuiltCase> in, String outputFile, ExecutorService tasks, StageTiming timing) throws IOException, InterruptedException {
+        try (JsonExporter exporter = new JsonExporter(outputFile)) {
+            while(true) {
+                BuiltCase c = take(in, timing);
+                if(c == END_OF_CASES) {
+                    return;
+                }
+                // The chat and friend request tasks log to the shared Main.executionLogs, so only this stage runs them.
+                Main.executionLogs.clear();
+                if(c.students.size() >= 2) {
+                    Main.runThreadsForExport(tasks, c.students.get(0), c.students.get(1));
+                }
+                exporter.writeCase(c.caseIndex + 1, inputs.get(c.caseIndex).name, c.students, c.graph, Main.executionLogs);
+                timing.items += c.students.size();
+            }
+        }
+    }
+
+    /**
+     * Runs the pipeline over dataset files and prints the stage timings.
+     *
+     * @param args the output file followed by one or more dataset files
+     * @throws IOException if a dataset cannot be read or the output cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("Usage: java Pipeline <outputFile> <dataset> [dataset...]");
+            return;
+        }
+        PrintStream console = System.out;
+        Report report;
+        // The export stage's chat and friend request tasks print every message.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            report = new Pipeline().runFiles(Arrays.asList(args).subList(1, args.length), args[0]);
+        }
+        finally {
+            System.setOut(console);
+        }
+        System.out.println(report);
+    }
+}
@@ -1,18 +1,82 @@
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Handles the formation of study pods and social groups.
  * Groups students into pods of a specified size based on connection strength
  * and mutual preferences using the underlying student graph.
+ *
+ * Pods are formed independently for every connected component, in parallel.
+ * Each component is first seeded greedily: a pod grows Prim-style from its seed by
+ * repeatedly adding the unassigned student with the largest summed connection to the
+ * pod. A Kernighan-Lin style local search then swaps pairs of students between pods
+ * while that raises the total intra-pod weight, until no move helps or the time budget
+ * runs out. Partially filled pods of different components are packed together at the end.
  */
 public class PodFormation {
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 2000;
+
+    private StudentGraph graph;
+    private long timeBudgetMillis;
+    private int parallelism;
+    private long totalIntraPodWeight;
+    private long lastRunMillis;
+    private Map<UniversityStudent, Integer> communities;
+
     /**
      * Constructs a PodFormation with a given student graph.
      *
      * @param graph the StudentGraph containing all students and their relationships
      */
     public PodFormation(StudentGraph graph) {
-        // Constructor
+        this.graph = graph;
+        this.timeBudgetMillis = DEFAULT_TIME_BUDGET_MILLIS;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the wall-clock budget for refinement. Greedy seeding always completes;
+     * local search stops once the budget is spent.
+     *
+     * @param timeBudgetMillis the budget in milliseconds, 0 disables refinement
+     */
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = Math.max(0, timeBudgetMillis);
+    }
+
+    /**
+     * Sets how many components are processed concurrently.
+     *
+     * @param parallelism the number of worker threads, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Supplies a community for every student, e.g. from CommunityDetection. Seeding then
+     * fills pods community by community and breaks ties in favour of the seed's community.
+     *
+     * @param communities the community id of every student, or null to seed by strength only
+     */
+    public void setCommunities(Map<UniversityStudent, Integer> communities) {
+        this.communities = communities;
+    }
+
+    /**
+     * Returns the summed weight of all edges whose endpoints share a pod in the last run.
+     * @return the total intra-pod weight
+     */
+    public long getTotalIntraPodWeight() {
+        return totalIntraPodWeight;
+    }
+
+    /**
+     * Returns how long the last call to formPods took.
+     * @return elapsed time in milliseconds
+     */
+    public long getLastRunMillis() {
+        return lastRunMillis;
     }
 
     /**
@@ -20,8 +84,427 @@ public class PodFormation {
      * Attempts to maximize connection strength within each pod.
      *
      * @param podSize the desired size of each pod (number of students per pod)
+     * @return the pods formed, each a list of at most podSize students
+     */
+    public List<List<UniversityStudent>> formPods(int podSize) {
+        if(podSize <= 0) {
+            throw new IllegalArgumentException("Pod size must be positive: " + podSize);
+        }
+        long startNanos = System.nanoTime();
+        if(graph == null || graph.getAllNodes().isEmpty()) {
+            totalIntraPodWeight = 0;
+            lastRunMillis = 0;
+            return new ArrayList<>();
+        }
+        return formPods(IndexedGraph.from(graph), podSize, startNanos);
+    }
+
+    /**
+     * Divides the students of an indexed snapshot into pods of the specified size, ignoring
+     * the graph this PodFormation was constructed with. Used to form pods on derived
+     * snapshots, e.g. one per what-if scenario, without building a StudentGraph for each.
+     *
+     * @param ig the snapshot to partition
+     * @param podSize the desired size of each pod (number of students per pod)
+     * @return the pods formed, each a list of at most podSize students
+     */
+    public List<List<UniversityStudent>> formPods(IndexedGraph ig, int podSize) {
+        if(podSize <= 0) {
+            throw new IllegalArgumentException("Pod size must be positive: " + podSize);
+        }
+        return formPods(ig, podSize, System.nanoTime());
+    }
+
+    private List<List<UniversityStudent>> formPods(IndexedGraph ig, int podSize, long startNanos) {
+        totalIntraPodWeight = 0;
+        // A pod can never hold more than every student, so larger sizes behave the same.
+        podSize = Math.min(podSize, Math.max(1, ig.size()));
+        List<List<UniversityStudent>> result = new ArrayList<>();
+        int[] communityOf = new int[ig.size()];
+        for(int i=0; i<ig.size(); i++) {
+            Integer c = communities == null ? null : communities.get(ig.student(i));
+            communityOf[i] = c == null ? -1 : c;
+        }
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+
+        // Split into connected components; pods never need to span two components.
+        int[] componentOf = ig.componentIds();
+        int componentCount = 0;
+        for(int c : componentOf) {
+            componentCount = Math.max(componentCount, c + 1);
+        }
+        int[] componentSize = new int[componentCount];
+        for(int c : componentOf) {
+            componentSize[c]++;
+        }
+        int[][] members = new int[componentCount][];
+        for(int c=0; c<componentCount; c++) {
+            members[c] = new int[componentSize[c]];
+        }
+        int[] localIndex = new int[ig.size()];
+        int[] fill = new int[componentCount];
+        for(int i=0; i<ig.size(); i++) {
+            int c = componentOf[i];
+            localIndex[i] = fill[c];
+            members[c][fill[c]++] = i;
+        }
+
+        // Largest components first so the longest tasks start early.
+        Integer[] componentOrder = new Integer[componentCount];
+        for(int c=0; c<componentCount; c++) {
+            componentOrder[c] = c;
+        }
+        Arrays.sort(componentOrder, (a, b) -> componentSize[b] - componentSize[a]);
+
+        List<int[]> pods = new ArrayList<>();
+        List<int[]> partial = new ArrayList<>();
+        List<Callable<List<int[]>>> tasks = new ArrayList<>();
+        for(int c : componentOrder) {
+            if(members[c].length <= podSize) {
+                (members[c].length == podSize ? pods : partial).add(members[c]);
+            }
+            else {
+                ComponentPartitioner partitioner = new ComponentPartitioner(ig, members[c], localIndex, communityOf, podSize, deadline);
+                tasks.add(partitioner::run);
+            }
+        }
+
+        if(!tasks.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()));
+            try {
+                for(Future<List<int[]>> f : executor.invokeAll(tasks)) {
+                    for(int[] pod : f.get()) {
+                        (pod.length == podSize ? pods : partial).add(pod);
+                    }
+                }
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Pod formation interrupted", e);
+            }
+            catch(ExecutionException e) {
+                throw new IllegalStateException("Pod formation failed", e.getCause());
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+
+        // Pack partial pods together, best fit decreasing. Open bins are keyed by remaining room,
+        // so each placement costs O(log bins) whatever the pod size. Merging pods never lowers the
+        // intra-pod weight.
+        partial.sort((a, b) -> b.length - a.length);
+        List<List<Integer>> bins = new ArrayList<>();
+        TreeMap<Integer, Deque<List<Integer>>> binsByRoom = new TreeMap<>();
+        for(int[] pod : partial) {
+            List<Integer> target = null;
+            Map.Entry<Integer, Deque<List<Integer>>> fit = binsByRoom.ceilingEntry(pod.length);
+            if(fit != null) {
+                target = fit.getValue().poll();
+                if(fit.getValue().isEmpty()) {
+                    binsByRoom.remove(fit.getKey());
+                }
+            }
+            if(target == null) {
+                target = new ArrayList<>();
+                bins.add(target);
+            }
+            for(int i : pod) {
+                target.add(i);
+            }
+            if(target.size() < podSize) {
+                binsByRoom.computeIfAbsent(podSize - target.size(), r -> new ArrayDeque<>()).push(target);
+            }
+        }
+
+        for(int[] pod : pods) {
+            List<UniversityStudent> list = new ArrayList<>(pod.length);
+            for(int i : pod) {
+                list.add(ig.student(i));
+            }
+            result.add(list);
+            totalIntraPodWeight += intraWeight(ig, pod);
+        }
+        for(List<Integer> bin : bins) {
+            List<UniversityStudent> list = new ArrayList<>(bin.size());
+            int[] pod = new int[bin.size()];
+            for(int k=0; k<pod.length; k++) {
+                pod[k] = bin.get(k);
+                list.add(ig.student(pod[k]));
+            }
+            result.add(list);
+            totalIntraPodWeight += intraWeight(ig, pod);
+        }
+        lastRunMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        return result;
+    }
+
+    /**
+     * Sums the weight of every edge with both endpoints in the pod, counting each edge once.
+     */
+    private static long intraWeight(IndexedGraph ig, int[] pod) {
+        Set<Integer> inPod = new HashSet<>();
+        for(int i : pod) {
+            inPod.add(i);
+        }
+        long sum = 0;
+        for(int u : pod) {
+            for(int k=ig.neighborStart(u); k<ig.neighborEnd(u); k++) {
+                if(ig.target(k) > u && inPod.contains(ig.target(k))) {
+                    sum += ig.weight(k);
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Partitions one connected component. All arrays are indexed by the local position
+     * of a student inside the component, so concurrent partitioners share nothing mutable.
      */
-    public void formPods(int podSize) {
-        // Method signature only
+    private static class ComponentPartitioner {
+        private final IndexedGraph ig;
+        private final int[] members;
+        private final int[] localIndex;
+        private final int[] communityOf;
+        private final int podSize;
+        private final long deadline;
+
+        private int[] podOf;
+        private int[][] pods;
+        private int[] podFill;
+        private long[] scratch;
+        private int[] stamp;
+        private int stampCounter;
+        private int[] touched;
+
+        ComponentPartitioner(IndexedGraph ig, int[] members, int[] localIndex, int[] communityOf, int podSize, long deadline) {
+            this.ig = ig;
+            this.members = members;
+            this.localIndex = localIndex;
+            this.communityOf = communityOf;
+            this.podSize = podSize;
+            this.deadline = deadline;
+        }
+
+        List<int[]> run() {
+            int n = members.length;
+            int podCount = (n + podSize - 1) / podSize;
+            podOf = new int[n];
+            Arrays.fill(podOf, -1);
+            pods = new int[podCount][podSize];
+            podFill = new int[podCount];
+            scratch = new long[podCount];
+            stamp = new int[podCount];
+            touched = new int[podCount];
+
+            seed();
+            refine();
+
+            List<int[]> result = new ArrayList<>(podCount);
+            for(int p=0; p<podCount; p++) {
+                int[] pod = new int[podFill[p]];
+                for(int k=0; k<pod.length; k++) {
+                    pod[k] = members[pods[p][k]];
+                }
+                if(pod.length > 0) {
+                    result.add(pod);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Greedy seeding. Seeds are taken in order of community, then decreasing weighted degree,
+         * and each pod grows by the unassigned student with the highest summed weight into the pod.
+         */
+        private void seed() {
+            int n = members.length;
+            Integer[] order = new Integer[n];
+            long[] strength = new long[n];
+            for(int i=0; i<n; i++) {
+                order[i] = i;
+                strength[i] = ig.weightedDegree(members[i]);
+            }
+            Arrays.sort(order, (a, b) -> {
+                int byCommunity = Integer.compare(communityOf[members[a]], communityOf[members[b]]);
+                return byCommunity != 0 ? byCommunity : Long.compare(strength[b], strength[a]);
+            });
+
+            long[] gain = new long[n];
+            List<Integer> candidates = new ArrayList<>();
+            int nextSeed = 0;
+            for(int p=0; p<pods.length; p++) {
+                while(nextSeed < n && podOf[order[nextSeed]] >= 0) {
+                    nextSeed++;
+                }
+                if(nextSeed == n) {
+                    break;
+                }
+                candidates.clear();
+                int current = order[nextSeed];
+                int seedCommunity = communityOf[members[current]];
+                while(current >= 0) {
+                    assign(current, p);
+                    if(podFill[p] == podSize) {
+                        break;
+                    }
+                    int u = members[current];
+                    for(int k=ig.neighborStart(u); k<ig.neighborEnd(u); k++) {
+                        int v = localIndex[ig.target(k)];
+                        if(podOf[v] < 0) {
+                            if(gain[v] == 0) {
+                                candidates.add(v);
+                            }
+                            gain[v] += ig.weight(k);
+                        }
+                    }
+
+                    // Pick the candidate most strongly tied to the pod; fall back to the next seed.
+                    current = -1;
+                    long best = 0;
+                    for(int v : candidates) {
+                        if(podOf[v] < 0 && (gain[v] > best || (gain[v] == best && current >= 0
+                                && communityOf[members[v]] == seedCommunity && communityOf[members[current]] != seedCommunity))) {
+                            best = gain[v];
+                            current = v;
+                        }
+                    }
+                    if(current < 0) {
+                        while(nextSeed < n && podOf[order[nextSeed]] >= 0) {
+                            nextSeed++;
+                        }
+                        current = nextSeed < n ? order[nextSeed] : -1;
+                    }
+                }
+                for(int v : candidates) {
+                    gain[v] = 0;
+                }
+            }
+        }
+
+        private void assign(int v, int p) {
+            podOf[v] = p;
+            pods[p][podFill[p]++] = v;
+        }
+
+        /**
+         * Local search. For each student, looks at pods it is more strongly tied to than its own
+         * and applies the best positive swap with one of their members. Swaps keep pod sizes intact.
+         * Scanning a pod costs O(podSize * degree), so the deadline is checked before each one.
+         */
+        private void refine() {
+            boolean improved = true;
+            while(improved && System.nanoTime() < deadline) {
+                improved = false;
+                for(int u=0; u<members.length; u++) {
+                    if(System.nanoTime() >= deadline) {
+                        return;
+                    }
+                    if(improveStudent(u)) {
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        private boolean improveStudent(int u) {
+            int own = podOf[u];
+            int touchedCount = podWeights(u);
+            long ownWeight = scratch[own];
+
+            long bestGain = 0;
+            int bestPod = -1;
+            int bestSwap = -1;
+            for(int t=0; t<touchedCount; t++) {
+                int q = touched[t];
+                long toQ = scratch[q];
+                if(q == own || toQ <= ownWeight) {
+                    continue;
+                }
+                if(System.nanoTime() >= deadline) {
+                    break;
+                }
+                for(int k=0; k<podFill[q]; k++) {
+                    int v = pods[q][k];
+                    long uv = weightBetween(u, v);
+                    long vToOwn = weightTo(v, own);
+                    long vToQ = weightTo(v, q);
+                    long gain = (toQ - uv) - ownWeight + (vToOwn - uv) - vToQ;
+                    if(gain > bestGain) {
+                        bestGain = gain;
+                        bestPod = q;
+                        bestSwap = v;
+                    }
+                }
+            }
+            for(int t=0; t<touchedCount; t++) {
+                scratch[touched[t]] = 0;
+            }
+
+            if(bestSwap < 0) {
+                return false;
+            }
+            remove(u, own);
+            remove(bestSwap, bestPod);
+            assign(u, bestPod);
+            assign(bestSwap, own);
+            return true;
+        }
+
+        /**
+         * Accumulates the weight from u into every pod it touches. Results are left in scratch,
+         * the touched pods in touched, and the count is returned. u's own pod is always included.
+         */
+        private int podWeights(int u) {
+            int count = 0;
+            stampCounter++;
+            touched[count++] = podOf[u];
+            stamp[podOf[u]] = stampCounter;
+            int gu = members[u];
+            for(int k=ig.neighborStart(gu); k<ig.neighborEnd(gu); k++) {
+                int p = podOf[localIndex[ig.target(k)]];
+                if(stamp[p] != stampCounter) {
+                    stamp[p] = stampCounter;
+                    touched[count++] = p;
+                }
+                scratch[p] += ig.weight(k);
+            }
+            return count;
+        }
+
+        private long weightTo(int v, int pod) {
+            long sum = 0;
+            int gv = members[v];
+            for(int k=ig.neighborStart(gv); k<ig.neighborEnd(gv); k++) {
+                int w = localIndex[ig.target(k)];
+                if(w != v && podOf[w] == pod) {
+                    sum += ig.weight(k);
+                }
+            }
+            return sum;
+        }
+
+        private long weightBetween(int u, int v) {
+            long sum = 0;
+            int gu = members[u];
+            int gv = members[v];
+            for(int k=ig.neighborStart(gu); k<ig.neighborEnd(gu); k++) {
+                if(ig.target(k) == gv) {
+                    sum += ig.weight(k);
+                }
+            }
+            return sum;
+        }
+
+        private void remove(int v, int p) {
+            for(int k=0; k<podFill[p]; k++) {
+                if(pods[p][k] == v) {
+                    pods[p][k] = pods[p][--podFill[p]];
+                    podOf[v] = -1;
+                    return;
+                }
+            }
+        }
     }
 }
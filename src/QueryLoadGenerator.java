@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local load generator for QueryServer. Fetches the student names from the server, then has
+ * a fixed number of client threads issue a mix of referral, neighbour and roommate queries
+ * for random students, and reports throughput and latency percentiles as seen by the client.
+ */
+public class QueryLoadGenerator {
+    private static final String[] COMPANIES = {"Google", "Amazon", "Meta", "Apple", "Microsoft"};
+
+    /**
+     * Runs the load.
+     *
+     * @param args base URL, optional client thread count and optional total request count
+     * @throws Exception if the server cannot be reached
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length < 1) {
+            System.err.println("Usage: java QueryLoadGenerator <baseUrl> [threads] [requests]");
+            return;
+        }
+        String base = args[0].endsWith("/") ? args[0].substring(0, args[0].length() - 1) : args[0];
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+        ExecutorService clientPool = Executors.newFixedThreadPool(threads);
+        try {
+            run(HttpClient.newBuilder().executor(clientPool).build(), base, threads, requests);
+        }
+        finally {
+            clientPool.shutdownNow();
+        }
+    }
+
+    private static void run(HttpClient client, String base, int threads, int requests) throws Exception {
+        List<String> names = parseNames(get(client, base + "/students?limit=10000"));
+        if(names.isEmpty()) {
+            System.err.println("Server has no students");
+            return;
+        }
+
+        Metrics.setEnabled(true);
+        Metrics.Histogram latency = Metrics.histogram("loadgen.request.ns");
+        LongAdder failures = new LongAdder();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for(int t=0; t<threads; t++) {
+            int share = requests / threads + (t < requests % threads ? 1 : 0);
+            long seed = t;
+            tasks.add(() -> {
+                Random random = new Random(seed);
+                for(int i=0; i<share; i++) {
+                    String student = URLEncoder.encode(names.get(random.nextInt(names.size())), StandardCharsets.UTF_8);
+                    int kind = random.nextInt(3);
+                    String url = kind == 0 ? base + "/referral?student=" + student + "&company=" + COMPANIES[random.nextInt(COMPANIES.length)]
+                            : kind == 1 ? base + "/neighbors?student=" + student
+                            : base + "/roommate?student=" + student;
+                    long start = Metrics.startTimer();
+                    try {
+                        get(client, url);
+                    }
+                    catch(IOException e) {
+                        failures.increment();
+                    }
+                    latency.recordSince(start);
+                }
+                return null;
+            });
+        }
+
+        long begin = System.nanoTime();
+        try {
+            for(Future<Void> f : pool.invokeAll(tasks)) {
+                f.get();
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf(Locale.ROOT, "%d requests on %d threads in %.2f s: %.0f req/s, %d failed%n",
+                requests, threads, seconds, requests / seconds, failures.sum());
+        System.out.printf(Locale.ROOT, "latency p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms%n",
+                latency.getPercentile(50) / 1e6, latency.getPercentile(90) / 1e6, latency.getPercentile(99) / 1e6, latency.getMax() / 1e6);
+        System.out.println("server stats: " + get(client, base + "/stats"));
+    }
+
+    private static String get(HttpClient client, String url) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(), HttpResponse.BodyHandlers.ofString());
+        if(response.statusCode() >= 500) {
+            throw new IOException("HTTP " + response.statusCode() + " from " + url);
+        }
+        return response.body();
+    }
+
+    /**
+     * Reads the names out of a JSON array of strings as returned by /students.
+     */
+    private static List<String> parseNames(String json) {
+        List<String> names = new ArrayList<>();
+        StringBuilder current = null;
+        for(int i=0; i<json.length(); i++) {
+            char c = json.charAt(i);
+            if(current == null) {
+                if(c == '"') {
+                    current = new StringBuilder();
+                }
+            }
+            else if(c == '\\' && i + 1 < json.length()) {
+                char next = json.charAt(++i);
+                if(next == 'u' && i + 4 < json.length()) {
+                    current.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                    i += 4;
+                }
+                else {
+                    current.append(next == 'n' ? '\n' : next == 't' ? '\t' : next == 'r' ? '\r' : next);
+                }
+            }
+            else if(c == '"') {
+                names.add(current.toString());
+                current = null;
+            }
+            else {
+                current.append(c);
+            }
+        }
+        return names;
+    }
+}
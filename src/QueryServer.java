@@ -0,0 +1,536 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long-running local HTTP service answering queries against a graph loaded once at startup.
+ *
+ * The loaded students, graph, referral path cache and computed pods form an immutable
+ * snapshot held in an AtomicReference. Every request reads the snapshot once and answers
+ * from it, so a reload builds the next snapshot on the side and swaps it in while requests
+ * already running finish on the old one; there is no window in which queries fail.
+ *
+ * Requests are handled on a virtual-thread-per-task executor when the JVM provides one
+ * (looked up reflectively) and on a cached thread pool otherwise. All responses are JSON,
+ * except /metrics which returns the plain-text Metrics report.
+ *
+ * The server binds to the loopback address only. POST requests sent by a browser page
+ * (those with an Origin header) are refused, and /reload only ever reloads the file the
+ * server was started with, so a web page cannot make it read other files or swap the snapshot.
+ *
+ * Endpoints:
+ *   GET  /referral?student=NAME&amp;company=COMPANY   referral path to the company
+ *   GET  /neighbors?student=NAME                   edges of a student
+ *   GET  /roommate?student=NAME                    assigned roommate
+ *   GET  /pods?size=N                              pods of N students, N at most MAX_POD_SIZE
+ *   GET  /students?limit=N                         student names
+ *   POST /batch                                    one query path per line, answered as a JSON array on one snapshot
+ *   POST /reload                                   load a new snapshot from the current file
+ *   GET  /stats                                    snapshot size, startup and reload times, per-endpoint latency
+ *   GET  /metrics                                  plain-text Metrics report
+ */
+public class QueryServer {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_CACHE_CAPACITY = ReferralPathCache.DEFAULT_CAPACITY;
+    public static final int MAX_POD_SIZE = 1024;
+    // Pods are kept for the few most recently requested sizes of each snapshot.
+    private static final int CACHED_POD_SIZES = 4;
+    private static final String[] ENDPOINTS = {"referral", "neighbors", "roommate", "pods", "students", "batch", "reload"};
+
+    private final int port;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final Map<String, Metrics.Histogram> latency = new HashMap<>();
+    private volatile String inputFile;
+    private HttpServer server;
+    private ExecutorService executor;
+    private long startupMillis;
+    private boolean metricsWereEnabled;
+
+    /**
+     * Everything a query needs, built once per load and never modified afterwards.
+     */
+    private static final class Snapshot {
+        final long generation;
+        final String source;
+        final List<UniversityStudent> students;
+        final Map<String, UniversityStudent> byName;
+        final StudentGraph graph;
+        final ReferralPathCache referrals;
+        final Map<Integer, List<List<UniversityStudent>>> pods = new LinkedHashMap<Integer, List<List<UniversityStudent>>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<List<UniversityStudent>>> eldest) {
+                return size() > CACHED_POD_SIZES;
+            }
+        };
+        final long loadMillis;
+
+        Snapshot(long generation, String source, List<UniversityStudent> students, StudentGraph graph, long loadMillis) {
+            this.generation = generation;
+            this.source = source;
+            this.students = Collections.unmodifiableList(students);
+            this.byName = new HashMap<>();
+            for(UniversityStudent s : students) {
+                byName.put(s.name, s);
+            }
+            this.graph = graph;
+            this.referrals = new ReferralPathCache(graph, DEFAULT_CACHE_CAPACITY);
+            this.loadMillis = loadMillis;
+        }
+    }
+
+    /**
+     * Signals a request that cannot be answered, with the HTTP status to reply with.
+     */
+    private static final class QueryException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        QueryException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Constructs a server for an input file. Nothing is loaded until start is called.
+     *
+     * @param inputFile the student data file to serve
+     * @param port the local port to listen on, or 0 for any free port
+     */
+    public QueryServer(String inputFile, int port) {
+        this.inputFile = inputFile;
+        this.port = port;
+        for(String endpoint : ENDPOINTS) {
+            latency.put(endpoint, Metrics.histogram("server." + endpoint + ".ns"));
+        }
+    }
+
+    /**
+     * Loads the first snapshot and starts accepting requests. Metrics are switched on so
+     * that /stats can report latency percentiles, until stop restores the previous setting.
+     *
+     * @throws IOException if the input cannot be loaded or the port cannot be bound
+     */
+    public void start() throws IOException {
+        long begin = System.nanoTime();
+        snapshot.set(load(inputFile, 1));
+        metricsWereEnabled = Metrics.isEnabled();
+        Metrics.setEnabled(true);
+        // Small responses would otherwise wait on Nagle's algorithm and delayed ACKs (~40 ms per request).
+        if(System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        startupMillis = (System.nanoTime() - begin) / 1000000;
+    }
+
+    /**
+     * Stops accepting requests, waiting up to a second for running ones to finish.
+     */
+    public void stop() {
+        if(server != null) {
+            server.stop(1);
+            executor.shutdownNow();
+            server = null;
+            Metrics.setEnabled(metricsWereEnabled);
+        }
+    }
+
+    /**
+     * Returns the port the server is bound to, which differs from the requested one when that was 0.
+     * @return the bound port
+     */
+    public int getPort() {
+        return server == null ? port : server.getAddress().getPort();
+    }
+
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /**
+     * Returns the generation of the snapshot currently served; it increases by one per reload.
+     * @return the snapshot generation
+     */
+    public long getGeneration() {
+        return snapshot.get().generation;
+    }
+
+    /**
+     * Loads a new snapshot and swaps it in. Requests keep being answered from the previous
+     * snapshot until the swap. Only one reload runs at a time.
+     *
+     * @param file the data file to load, or null to reload the current one
+     * @return the generation of the new snapshot
+     * @throws IOException if the file cannot be loaded; the previous snapshot stays in service
+     */
+    public long reload(String file) throws IOException {
+        reloadLock.lock();
+        try {
+            return swapIn(file == null ? inputFile : file);
+        }
+        finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Loads and publishes the next snapshot. Must be called with the reload lock held.
+     */
+    private long swapIn(String source) throws IOException {
+        Snapshot next = load(source, snapshot.get().generation + 1);
+        snapshot.set(next);
+        inputFile = source;
+        return next.generation;
+    }
+
+    private static Snapshot load(String file, long generation) throws IOException {
+        long begin = System.nanoTime();
+        List<UniversityStudent> students = DataParser.parseStudents(file);
+        GaleShapley.assignRoommates(students);
+        StudentGraph graph = new StudentGraph(students);
+        return new Snapshot(generation, file, students, graph, (System.nanoTime() - begin) / 1000000);
+    }
+
+    /**
+     * Prefers one virtual thread per request, available from Java 21, over a cached platform thread pool.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch(ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String endpoint = path.startsWith("/") ? path.substring(1) : path;
+        long start = Metrics.startTimer();
+        try {
+            if(endpoint.equals("metrics")) {
+                reply(exchange, 200, "text/plain; charset=utf-8", Metrics.report());
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            boolean post = endpoint.equals("batch") || endpoint.equals("reload");
+            if(post != method.equals("POST")) {
+                throw new QueryException(405, "Method " + method + " not allowed on /" + endpoint);
+            }
+            if(post && exchange.getRequestHeaders().containsKey("Origin")) {
+                throw new QueryException(403, "Cross-origin requests are not allowed on /" + endpoint);
+            }
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            String body;
+            if(endpoint.equals("batch")) {
+                body = batch(snapshot.get(), readBody(exchange));
+            }
+            else if(endpoint.equals("reload")) {
+                if(params.containsKey("file")) {
+                    throw new QueryException(400, "/reload only reloads the file the server was started with");
+                }
+                body = reloadResponse();
+            }
+            else if(endpoint.equals("stats")) {
+                body = stats(snapshot.get());
+            }
+            else {
+                body = query(snapshot.get(), endpoint, params);
+            }
+            reply(exchange, 200, "application/json; charset=utf-8", body);
+        }
+        catch(QueryException e) {
+            reply(exchange, e.status, "application/json; charset=utf-8", error(e.getMessage()));
+        }
+        catch(RuntimeException e) {
+            reply(exchange, 500, "application/json; charset=utf-8", error(String.valueOf(e)));
+        }
+        finally {
+            Metrics.Histogram h = latency.get(endpoint);
+            if(h != null) {
+                h.recordSince(start);
+            }
+        }
+    }
+
+    /**
+     * Answers one read-only query against a snapshot.
+     */
+    private String query(Snapshot snap, String endpoint, Map<String, String> params) throws QueryException {
+        StringWriter out = new StringWriter();
+        try {
+            if(endpoint.equals("referral")) {
+                UniversityStudent student = student(snap, params);
+                String company = required(params, "company");
+                out.write("{\"student\": ");
+                JsonExporter.writeString(out, student.name);
+                out.write(", \"company\": ");
+                JsonExporter.writeString(out, company);
+                out.write(", \"path\": ");
+                writeNames(out, snap.referrals.findReferralPath(student, company));
+                out.write('}');
+            }
+            else if(endpoint.equals("neighbors")) {
+                UniversityStudent student = student(snap, params);
+                out.write("{\"student\": ");
+                JsonExporter.writeString(out, student.name);
+                out.write(", \"neighbors\": [");
+                List<StudentGraph.Edge> edges = snap.graph.getNeighborView(student);
+                for(int i=0; edges != null && i<edges.size(); i++) {
+                    out.write(i == 0 ? "{\"name\": " : ", {\"name\": ");
+                    JsonExporter.writeString(out, edges.get(i).getNeighbor().name);
+                    out.write(", \"weight\": " + edges.get(i).getWeight() + "}");
+                }
+                out.write("]}");
+            }
+            else if(endpoint.equals("roommate")) {
+                UniversityStudent student = student(snap, params);
+                out.write("{\"student\": ");
+                JsonExporter.writeString(out, student.name);
+                out.write(", \"roommate\": ");
+                JsonExporter.writeString(out, student.getRoommate() == null ? null : student.getRoommate().name);
+                out.write('}');
+            }
+            else if(endpoint.equals("pods")) {
+                int size = positiveInt(params, "size", 4);
+                if(size > MAX_POD_SIZE) {
+                    throw new QueryException(400, "Parameter size must be at most " + MAX_POD_SIZE + ": " + size);
+                }
+                // Larger pods than there are students all come out the same.
+                size = Math.min(size, Math.max(1, snap.students.size()));
+                List<List<UniversityStudent>> pods = pods(snap, size);
+                out.write("{\"size\": " + size + ", \"pods\": [");
+                for(int i=0; i<pods.size(); i++) {
+                    if(i > 0) {
+                        out.write(", ");
+                    }
+                    writeNames(out, pods.get(i));
+                }
+                out.write("]}");
+            }
+            else if(endpoint.equals("students")) {
+                int limit = positiveInt(params, "limit", Integer.MAX_VALUE);
+                writeNames(out, snap.students.subList(0, Math.min(limit, snap.students.size())));
+            }
+            else {
+                throw new QueryException(404, "Unknown endpoint: /" + endpoint);
+            }
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns the pods of a size, forming them outside the cache lock so that slow pod formation
+     * never blocks requests for other sizes. Concurrent first requests may both form the pods.
+     */
+    private static List<List<UniversityStudent>> pods(Snapshot snap, int size) {
+        synchronized(snap.pods) {
+            List<List<UniversityStudent>> cached = snap.pods.get(size);
+            if(cached != null) {
+                return cached;
+            }
+        }
+        List<List<UniversityStudent>> pods = new PodFormation(snap.graph).formPods(size);
+        synchronized(snap.pods) {
+            snap.pods.putIfAbsent(size, pods);
+        }
+        return pods;
+    }
+
+    /**
+     * Answers several queries, one request path per line, all against the same snapshot.
+     * A failing query yields an error object in its slot instead of failing the batch.
+     */
+    private String batch(Snapshot snap, String body) {
+        StringBuilder out = new StringBuilder("[");
+        int answered = 0;
+        for(String line : body.split("\n")) {
+            String request = line.trim();
+            if(request.isEmpty()) {
+                continue;
+            }
+            if(answered++ > 0) {
+                out.append(",\n");
+            }
+            int q = request.indexOf('?');
+            String endpoint = (q < 0 ? request : request.substring(0, q)).replaceFirst("^/", "");
+            try {
+                if(endpoint.equals("batch") || endpoint.equals("reload")) {
+                    throw new QueryException(400, "/" + endpoint + " cannot be batched");
+                }
+                out.append(query(snap, endpoint, parseQuery(q < 0 ? null : request.substring(q + 1))));
+            }
+            catch(QueryException e) {
+                out.append(error(e.getMessage()));
+            }
+        }
+        return out.append("]").toString();
+    }
+
+    private String reloadResponse() throws QueryException {
+        if(!reloadLock.tryLock()) {
+            throw new QueryException(409, "A reload is already running");
+        }
+        try {
+            long generation = swapIn(inputFile);
+            Snapshot snap = snapshot.get();
+            return "{\"generation\": " + generation + ", \"students\": " + snap.students.size()
+                    + ", \"loadMillis\": " + snap.loadMillis + "}";
+        }
+        catch(IOException e) {
+            // The parser's message names local paths, so it goes to the server log only.
+            System.err.println("Reload of " + inputFile + " failed: " + e.getMessage());
+            throw new QueryException(500, "Reload failed, still serving generation " + getGeneration());
+        }
+        finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private String stats(Snapshot snap) {
+        StringWriter out = new StringWriter();
+        try {
+            out.write("{\"generation\": " + snap.generation + ", \"source\": ");
+            JsonExporter.writeString(out, snap.source);
+            out.write(", \"students\": " + snap.students.size());
+            out.write(", \"startupMillis\": " + startupMillis + ", \"loadMillis\": " + snap.loadMillis);
+            out.write(", \"referralCache\": ");
+            JsonExporter.writeString(out, snap.referrals.toString());
+            out.write(", \"latency\": {");
+            for(int i=0; i<ENDPOINTS.length; i++) {
+                Metrics.Histogram h = latency.get(ENDPOINTS[i]);
+                out.write(String.format(Locale.ROOT, "%s\"%s\": {\"count\": %d, \"p50Millis\": %.3f, \"p99Millis\": %.3f, \"maxMillis\": %.3f}",
+                        i == 0 ? "" : ", ", ENDPOINTS[i], h.getCount(), h.getPercentile(50) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6));
+            }
+            out.write("}}");
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private static UniversityStudent student(Snapshot snap, Map<String, String> params) throws QueryException {
+        String name = required(params, "student");
+        UniversityStudent student = snap.byName.get(name);
+        if(student == null) {
+            throw new QueryException(404, "Unknown student: " + name);
+        }
+        return student;
+    }
+
+    private static String required(Map<String, String> params, String key) throws QueryException {
+        String value = params.get(key);
+        if(value == null || value.isEmpty()) {
+            throw new QueryException(400, "Missing parameter: " + key);
+        }
+        return value;
+    }
+
+    private static int positiveInt(Map<String, String> params, String key, int fallback) throws QueryException {
+        String value = params.get(key);
+        if(value == null) {
+            return fallback;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if(parsed > 0) {
+                return parsed;
+            }
+        }
+        catch(NumberFormatException e) {
+            // Reported below.
+        }
+        throw new QueryException(400, "Parameter " + key + " must be a positive integer: " + value);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if(rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for(String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static void writeNames(Writer out, List<UniversityStudent> students) throws IOException {
+        out.write('[');
+        for(int i=0; i<students.size(); i++) {
+            if(i > 0) {
+                out.write(", ");
+            }
+            JsonExporter.writeString(out, students.get(i).name);
+        }
+        out.write(']');
+    }
+
+    private static String error(String message) {
+        StringWriter out = new StringWriter();
+        try {
+            out.write("{\"error\": ");
+            JsonExporter.writeString(out, message);
+            out.write('}');
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void reply(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Starts the server and keeps it running until the process is stopped.
+     *
+     * @param args input file and optional port
+     * @throws IOException if the input cannot be loaded or the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.err.println("Usage: java QueryServer <inputFile> [port]");
+            return;
+        }
+        QueryServer server = new QueryServer(args[0], args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+        server.start();
+        System.out.println("Serving " + args[0] + " on http://localhost:" + server.getPort() + "/ (started in "
+                + server.getStartupMillis() + " ms)");
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+}
@@ -0,0 +1,333 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Recommends students to connect with ("people you may know").
+ *
+ * Candidates are students a student is not yet connected to. Two scoring models are offered:
+ * two-hop scoring, which sums the weights along every path of length two to the candidate,
+ * and personalised PageRank, approximated with the local push algorithm so that only the
+ * neighbourhood around the student is touched. The top K candidates are selected with a
+ * bounded min-heap. Queries run on an IndexedGraph snapshot that is rebuilt automatically
+ * when the underlying graph version changes; recommendAll runs two-hop scoring for every
+ * student in parallel.
+ */
+public class RecommendationEngine {
+    public static final double DEFAULT_ALPHA = 0.15;
+    public static final double DEFAULT_EPSILON = 1e-4;
+    private static final int CHUNK_SIZE = 256;
+
+    private final StudentGraph graph;
+    private volatile IndexedGraph snapshot;
+    private volatile long snapshotVersion;
+    private double alpha;
+    private double epsilon;
+
+    /**
+     * A recommended student and its score; higher scores are stronger recommendations.
+     */
+    public static class Recommendation {
+        private final UniversityStudent student;
+        private final double score;
+
+        public Recommendation(UniversityStudent student, double score) {
+            this.student = student;
+            this.score = score;
+        }
+
+        public UniversityStudent getStudent() {
+            return student;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + student.name + ", " + score + ")";
+        }
+    }
+
+    /**
+     * Reusable per-thread buffers sized to the snapshot.
+     */
+    private static class Scratch {
+        final double[] score;
+        final double[] residual;
+        final int[] touched;
+        final int[] mark;
+        int stamp;
+
+        Scratch(int n) {
+            score = new double[n];
+            residual = new double[n];
+            touched = new int[n];
+            mark = new int[n];
+        }
+    }
+
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<>();
+
+    /**
+     * Constructs a recommendation engine over a given student graph.
+     *
+     * @param graph the StudentGraph containing all students and their relationships
+     */
+    public RecommendationEngine(StudentGraph graph) {
+        this.graph = graph;
+        this.alpha = DEFAULT_ALPHA;
+        this.epsilon = DEFAULT_EPSILON;
+        refresh();
+    }
+
+    /**
+     * Sets the teleport probability of personalised PageRank.
+     * @param alpha the probability of jumping back to the student, between 0 and 1 exclusive
+     */
+    public void setAlpha(double alpha) {
+        if(alpha <= 0 || alpha >= 1) {
+            throw new IllegalArgumentException("Alpha must be between 0 and 1: " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    /**
+     * Sets the push threshold of personalised PageRank. Smaller values are more accurate but touch more nodes.
+     * @param epsilon the residual per unit of weighted degree below which a node is not pushed
+     */
+    public void setEpsilon(double epsilon) {
+        if(epsilon <= 0) {
+            throw new IllegalArgumentException("Epsilon must be positive: " + epsilon);
+        }
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Rebuilds the snapshot if the graph changed since it was taken.
+     * @return the current snapshot
+     */
+    private IndexedGraph refresh() {
+        IndexedGraph current = snapshot;
+        long version = graph.getVersion();
+        if(current == null || version != snapshotVersion) {
+            synchronized(this) {
+                if(snapshot == null || version != snapshotVersion) {
+                    snapshot = IndexedGraph.from(graph);
+                    snapshotVersion = version;
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private Scratch scratchFor(IndexedGraph ig) {
+        Scratch s = scratch.get();
+        if(s == null || s.score.length != ig.size()) {
+            s = new Scratch(ig.size());
+            scratch.set(s);
+        }
+        return s;
+    }
+
+    /**
+     * Recommends up to k students by two-hop score: for every path student - m - candidate,
+     * the candidate scores the sum of both edge weights. Existing neighbours are excluded.
+     *
+     * @param student the student to recommend for
+     * @param k the maximum number of recommendations
+     * @return recommendations, strongest first; empty if the student is not in the graph
+     */
+    public List<Recommendation> recommendTwoHop(UniversityStudent student, int k) {
+        IndexedGraph ig = refresh();
+        int u = ig.indexOf(student);
+        if(u < 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+        return twoHop(ig, u, k, scratchFor(ig));
+    }
+
+    private static List<Recommendation> twoHop(IndexedGraph ig, int u, int k, Scratch s) {
+        int stamp = markNeighbors(ig, u, s);
+        int count = 0;
+        for(int e=ig.neighborStart(u); e<ig.neighborEnd(u); e++) {
+            int m = ig.target(e);
+            int w1 = ig.weight(e);
+            for(int f=ig.neighborStart(m); f<ig.neighborEnd(m); f++) {
+                int c = ig.target(f);
+                if(s.mark[c] == stamp) {
+                    continue;
+                }
+                if(s.score[c] == 0) {
+                    s.touched[count++] = c;
+                }
+                s.score[c] += w1 + ig.weight(f);
+            }
+        }
+        return topK(ig, s, count, k);
+    }
+
+    /**
+     * Recommends up to k students by personalised PageRank from the student, approximated
+     * with the push method: residual mass is pushed from a node to its neighbours in
+     * proportion to edge weight until every residual is below epsilon times weighted degree.
+     *
+     * @param student the student to recommend for
+     * @param k the maximum number of recommendations
+     * @return recommendations, strongest first; empty if the student is not in the graph
+     */
+    public List<Recommendation> recommendPersonalizedPageRank(UniversityStudent student, int k) {
+        IndexedGraph ig = refresh();
+        int u = ig.indexOf(student);
+        if(u < 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+        Scratch s = scratchFor(ig);
+        int stamp = markNeighbors(ig, u, s);
+
+        // score holds the PageRank estimate, residual the mass still to be pushed.
+        int count = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        s.residual[u] = 1.0;
+        s.touched[count++] = u;
+        queue.add(u);
+        while(!queue.isEmpty()) {
+            int v = queue.poll();
+            double r = s.residual[v];
+            long degree = ig.weightedDegree(v);
+            if(degree == 0) {
+                s.score[v] += r;
+                s.residual[v] = 0;
+                continue;
+            }
+            if(r < epsilon * degree) {
+                continue;
+            }
+            s.score[v] += alpha * r;
+            s.residual[v] = 0;
+            double spread = (1 - alpha) * r / degree;
+            for(int e=ig.neighborStart(v); e<ig.neighborEnd(v); e++) {
+                int t = ig.target(e);
+                double before = s.residual[t];
+                if(before == 0 && s.score[t] == 0 && t != u) {
+                    s.touched[count++] = t;
+                }
+                s.residual[t] = before + spread * ig.weight(e);
+                long tDegree = ig.weightedDegree(t);
+                if(before < epsilon * tDegree && s.residual[t] >= epsilon * tDegree) {
+                    queue.add(t);
+                }
+            }
+        }
+
+        // Drop the student and its neighbours from the candidates, then select the top k.
+        int kept = 0;
+        for(int t=0; t<count; t++) {
+            int c = s.touched[t];
+            s.residual[c] = 0;
+            if(s.mark[c] == stamp) {
+                s.score[c] = 0;
+            }
+            else {
+                s.touched[kept++] = c;
+            }
+        }
+        return topK(ig, s, kept, k);
+    }
+
+    /**
+     * Marks the student and its neighbours with a fresh stamp so they can be skipped.
+     */
+    private static int markNeighbors(IndexedGraph ig, int u, Scratch s) {
+        int stamp = ++s.stamp;
+        s.mark[u] = stamp;
+        for(int e=ig.neighborStart(u); e<ig.neighborEnd(u); e++) {
+            s.mark[ig.target(e)] = stamp;
+        }
+        return stamp;
+    }
+
+    /**
+     * Selects the k best touched candidates with a bounded min-heap and clears their scores.
+     * Ties are broken in favour of the lower index, i.e. the alphabetically earlier name.
+     */
+    private static List<Recommendation> topK(IndexedGraph ig, Scratch s, int count, int k) {
+        Comparator<Integer> weakestFirst = (a, b) -> {
+            int byScore = Double.compare(s.score[a], s.score[b]);
+            return byScore != 0 ? byScore : Integer.compare(b, a);
+        };
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(k, Math.max(1, count)) + 1, weakestFirst);
+        for(int t=0; t<count; t++) {
+            int c = s.touched[t];
+            if(s.score[c] <= 0) {
+                continue;
+            }
+            if(heap.size() < k) {
+                heap.add(c);
+            }
+            else if(weakestFirst.compare(c, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(c);
+            }
+        }
+        Recommendation[] result = new Recommendation[heap.size()];
+        for(int i=result.length-1; i>=0; i--) {
+            int c = heap.poll();
+            result[i] = new Recommendation(ig.student(c), s.score[c]);
+        }
+        for(int t=0; t<count; t++) {
+            s.score[s.touched[t]] = 0;
+        }
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
+    /**
+     * Computes two-hop recommendations for every student in the graph, in parallel.
+     *
+     * @param k the maximum number of recommendations per student
+     * @param parallelism the number of worker threads
+     * @return the recommendations of every student
+     */
+    public Map<UniversityStudent, List<Recommendation>> recommendAll(int k, int parallelism) {
+        IndexedGraph ig = refresh();
+        int n = ig.size();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        // Each task sets only its own indices, so the list is never structurally modified concurrently.
+        List<List<Recommendation>> results = new ArrayList<>(Collections.nCopies(n, null));
+        for(int from=0; from<n; from+=CHUNK_SIZE) {
+            int start = from;
+            int end = Math.min(n, from + CHUNK_SIZE);
+            tasks.add(() -> {
+                Scratch s = scratchFor(ig);
+                for(int u=start; u<end; u++) {
+                    results.set(u, k <= 0 ? new ArrayList<>() : twoHop(ig, u, k, s));
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            for(Future<Void> f : executor.invokeAll(tasks)) {
+                f.get();
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch recommendation interrupted", e);
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException("Batch recommendation failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        Map<UniversityStudent, List<Recommendation>> all = new HashMap<>(n * 2);
+        for(int u=0; u<n; u++) {
+            all.put(ig.student(u), results.get(u));
+        }
+        return all;
+    }
+}
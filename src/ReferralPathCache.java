@@ -0,0 +1,203 @@
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache in front of ReferralPathFinder for repeated (student, company) lookups.
+ *
+ * Entries are evicted least-recently-used once the capacity is reached. Every entry is
+ * tagged with the version of the graph it was computed on; as soon as the graph reports a
+ * different version, all cached paths are dropped and recomputed on demand. Hit, miss,
+ * eviction and invalidation counts are kept so the cache can be sized from real traffic.
+ * Safe for concurrent use; a path is computed outside the lock, so concurrent misses for
+ * the same key may both run the search.
+ */
+public class ReferralPathCache {
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final Supplier<StudentGraph> graphSource;
+    private final int capacity;
+    private final LinkedHashMap<Key, CachedPath> entries;
+    private long cachedVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Cache key: the identity of the start student and the target company.
+     */
+    private static final class Key {
+        final UniversityStudent start;
+        final String company;
+
+        Key(UniversityStudent start, String company) {
+            this.start = start;
+            this.company = company;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return start == other.start && company.equals(other.company);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(start) + company.hashCode();
+        }
+    }
+
+    /**
+     * A cached path and the graph version it was computed on.
+     */
+    private static final class CachedPath {
+        final List<UniversityStudent> path;
+        final long version;
+
+        CachedPath(List<UniversityStudent> path, long version) {
+            this.path = path;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Constructs a cache over a mutable student graph.
+     *
+     * @param graph the graph to search
+     * @param capacity the maximum number of cached paths
+     */
+    public ReferralPathCache(StudentGraph graph, int capacity) {
+        this(() -> graph, capacity);
+    }
+
+    /**
+     * Constructs a cache over a concurrent graph. Lookups run on its latest snapshot and
+     * entries are invalidated whenever a new snapshot is published.
+     *
+     * @param graph the concurrent graph to search
+     * @param capacity the maximum number of cached paths
+     */
+    public ReferralPathCache(ConcurrentStudentGraph graph, int capacity) {
+        this(graph::snapshot, capacity);
+    }
+
+    private ReferralPathCache(Supplier<StudentGraph> graphSource, int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.graphSource = graphSource;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, CachedPath>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedPath> eldest) {
+                if(size() > ReferralPathCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.cachedVersion = graphSource.get().getVersion();
+    }
+
+    /**
+     * Returns the referral path from a student to the target company, from the cache when
+     * the graph has not changed since it was computed.
+     *
+     * @param start the UniversityStudent to start the search from
+     * @param targetCompany the name of the company to find referral contacts for
+     * @return a list of students representing the referral path, or an empty list if no path exists
+     */
+    public List<UniversityStudent> findReferralPath(UniversityStudent start, String targetCompany) {
+        StudentGraph graph = graphSource.get();
+        if(start == null || targetCompany == null || targetCompany.isEmpty() || graph == null) {
+            return new ArrayList<>();
+        }
+        long version = graph.getVersion();
+        Key key = new Key(start, targetCompany);
+        synchronized(entries) {
+            if(version != cachedVersion) {
+                invalidations.add(entries.size());
+                entries.clear();
+                cachedVersion = version;
+            }
+            CachedPath cached = entries.get(key);
+            if(cached != null && cached.version == version) {
+                hits.increment();
+                return new ArrayList<>(cached.path);
+            }
+        }
+
+        misses.increment();
+        List<UniversityStudent> path = new ReferralPathFinder(graph).findReferralPath(start, targetCompany);
+        synchronized(entries) {
+            // Do not store a path computed on a graph that changed while we were searching.
+            if(version == cachedVersion) {
+                entries.put(key, new CachedPath(Collections.unmodifiableList(new ArrayList<>(path)), version));
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Drops every cached path.
+     */
+    public void clear() {
+        synchronized(entries) {
+            invalidations.add(entries.size());
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized(entries) {
+            return entries.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of entries dropped because the graph changed or clear() was called.
+     * @return the invalidation count
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache.
+     * @return the hit rate between 0 and 1, or 0 before the first lookup
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + "/" + capacity + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + ", invalidations=" + getInvalidationCount()
+                + String.format(", hitRate=%.3f", getHitRate());
+    }
+}
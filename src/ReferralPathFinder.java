@@ -8,6 +8,11 @@ import java.util.*;
 public class ReferralPathFinder {
     private StudentGraph graph;
 
+    private static final Metrics.Histogram QUERY_TIME = Metrics.histogram("referral.query.ns");
+    private static final Metrics.Histogram NODES_SETTLED = Metrics.histogram("referral.nodes.settled");
+    private static final Metrics.Counter PATHS_FOUND = Metrics.counter("referral.paths.found");
+    private static final Metrics.Counter PATHS_MISSING = Metrics.counter("referral.paths.missing");
+
     /**
      * Constructs a ReferralPathFinder with a given student graph.
      *
@@ -40,6 +45,7 @@ public class ReferralPathFinder {
             return temp;
         }
 
+        long startTime = Metrics.startTimer();
         Map<UniversityStudent, Double> distMap = new HashMap<>();   // Map to store best known distance.
         Map<UniversityStudent, UniversityStudent> prevMap = new HashMap<>(); // Map to store previous node for path reconstruction.
         Set<UniversityStudent> visited = new HashSet<>();
@@ -81,6 +87,9 @@ public class ReferralPathFinder {
                     temp = prevMap.get(temp);
                 }
                 Collections.reverse(path);
+                NODES_SETTLED.record(visited.size());
+                PATHS_FOUND.increment();
+                QUERY_TIME.recordSince(startTime);
                 return path;
             }
 
@@ -103,6 +112,9 @@ public class ReferralPathFinder {
             }
         }
 
+        NODES_SETTLED.record(visited.size());
+        PATHS_MISSING.increment();
+        QUERY_TIME.recordSince(startTime);
         return new ArrayList<>();
     }
 }
@@ -0,0 +1,210 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays a production-like workload against a dataset and reports throughput and latency per stage.
+ *
+ * The batch stages (parsing, roommate matching, graph build) run once and are timed as a
+ * whole. Query traffic is then replayed open-loop at a fixed rate: operations are scheduled at
+ * evenly spaced instants and latency is measured from the scheduled instant, so a slow
+ * system accumulates queueing delay instead of silently lowering the offered load. Half of
+ * the operations are referral path queries, the rest are chat messages and friend requests.
+ *
+ * Datasets above the exact-build limit get a SparseGraphBuilder graph, because the exact
+ * graph grows quadratically with the number of students.
+ *
+ * Usage: java ReplayHarness &lt;dataset&gt; [opsPerSecond] [seconds] [threads]
+ * The dataset may be a DataParser text file or a SyntheticDataGenerator binary file.
+ */
+public class ReplayHarness {
+    public static final int EXACT_BUILD_LIMIT = 20000;
+
+    private final int rate;
+    private final int seconds;
+    private final int threads;
+    private final List<String[]> report = new ArrayList<>();
+
+    /**
+     * Constructs a harness.
+     *
+     * @param rate the number of query operations started per second
+     * @param seconds how long to replay query traffic for
+     * @param threads the number of worker threads serving query traffic
+     */
+    public ReplayHarness(int rate, int seconds, int threads) {
+        if(rate <= 0 || seconds <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Rate, duration and threads must be positive: " + rate + ", " + seconds + ", " + threads);
+        }
+        this.rate = rate;
+        this.seconds = seconds;
+        this.threads = threads;
+    }
+
+    /**
+     * Runs every stage against a dataset and prints the report.
+     *
+     * @param dataset the path of a text or binary dataset
+     * @throws IOException if the dataset cannot be read
+     * @throws InterruptedException if interrupted while replaying traffic
+     */
+    public void run(String dataset) throws IOException, InterruptedException {
+        boolean metricsWereEnabled = Metrics.isEnabled();
+        Metrics.setEnabled(true);
+        Metrics.reset();
+        PrintStream console = System.out;
+        try {
+            long start = System.nanoTime();
+            StudentTable table = isBinary(dataset) ? DataParser.parseBinaryStudentTable(dataset) : DataParser.parseStudentTable(dataset);
+            addBatchRow("parse", table.size(), System.nanoTime() - start);
+
+            start = System.nanoTime();
+            GaleShapley.assignRoommates(table);
+            addBatchRow("matching", table.size(), System.nanoTime() - start);
+
+            start = System.nanoTime();
+            StudentGraph graph;
+            String graphStage;
+            if(table.size() <= EXACT_BUILD_LIMIT) {
+                graph = new StudentGraph(table, ConnectionScorer.Weights.DEFAULT);
+                graphStage = "graph (exact)";
+            }
+            else {
+                graph = new SparseGraphBuilder(SparseGraphBuilder.DEFAULT_MAX_DEGREE).build(table.views());
+                graphStage = "graph (sparse)";
+            }
+            addBatchRow(graphStage, table.size(), System.nanoTime() - start);
+
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                replay(table, graph);
+            }
+            finally {
+                System.setOut(console);
+            }
+            printReport(console, dataset, table.size());
+        }
+        finally {
+            Main.executionLogs.clear();
+            Metrics.setEnabled(metricsWereEnabled);
+        }
+    }
+
+    /**
+     * Schedules rate * seconds operations at evenly spaced instants and waits for all of them.
+     */
+    private void replay(StudentTable table, StudentGraph graph) throws InterruptedException {
+        Metrics.Histogram referralLatency = Metrics.histogram("replay.referral.ns");
+        Metrics.Histogram chatLatency = Metrics.histogram("replay.chat.ns");
+        Metrics.Histogram friendLatency = Metrics.histogram("replay.friend.ns");
+        LongAdder lateStarts = new LongAdder();
+
+        List<UniversityStudent> students = table.views();
+        ReferralPathFinder finder = new ReferralPathFinder(graph);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Random random = new Random(7);
+        long total = (long) rate * seconds;
+        long intervalNanos = 1000000000L / rate;
+        long begin = System.nanoTime();
+        try {
+            for(long i=0; i<total; i++) {
+                long scheduled = begin + i * intervalNanos;
+                long wait = scheduled - System.nanoTime();
+                if(wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                else if(wait < -intervalNanos) {
+                    lateStarts.increment();
+                }
+                UniversityStudent a = students.get(random.nextInt(students.size()));
+                UniversityStudent b = students.get(random.nextInt(students.size()));
+                int kind = random.nextInt(4);
+                if(kind < 2) {
+                    String company = companyFor(b);
+                    executor.execute(() -> {
+                        finder.findReferralPath(a, company);
+                        referralLatency.record(System.nanoTime() - scheduled);
+                    });
+                }
+                else if(kind == 2) {
+                    executor.execute(() -> {
+                        new ChatThread(a, b, "Replay message").run();
+                        chatLatency.record(System.nanoTime() - scheduled);
+                    });
+                }
+                else {
+                    executor.execute(() -> {
+                        new FriendRequestThread(a, b).run();
+                        friendLatency.record(System.nanoTime() - scheduled);
+                    });
+                }
+            }
+            executor.shutdown();
+            if(!executor.awaitTermination(5, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Replay traffic did not finish in time.");
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - begin;
+        addTrafficRow("referral", referralLatency, elapsed);
+        addTrafficRow("chat", chatLatency, elapsed);
+        addTrafficRow("friend request", friendLatency, elapsed);
+        if(lateStarts.sum() > 0) {
+            report.add(new String[] {"(scheduler late)", Long.toString(lateStarts.sum()), "", "", "", "", ""});
+        }
+    }
+
+    private static String companyFor(UniversityStudent s) {
+        List<String> internships = s.previousInternships;
+        return internships == null || internships.isEmpty() ? "Google" : internships.get(0);
+    }
+
+    private static boolean isBinary(String dataset) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(dataset))) {
+            return in.available() >= 4 && in.readInt() == SyntheticDataGenerator.BINARY_MAGIC;
+        }
+    }
+
+    private void addBatchRow(String stage, int items, long nanos) {
+        Metrics.histogram("replay." + stage.split(" ")[0] + ".ns").record(nanos);
+        double millis = nanos / 1e6;
+        report.add(new String[] {stage, Integer.toString(items), String.format("%.3f", nanos / 1e9),
+                String.format("%.0f", items / (nanos / 1e9)), String.format("%.3fms", millis),
+                String.format("%.3fms", millis), String.format("%.3fms", millis)});
+    }
+
+    private void addTrafficRow(String stage, Metrics.Histogram latency, long elapsedNanos) {
+        report.add(new String[] {stage, Long.toString(latency.getCount()), String.format("%.3f", elapsedNanos / 1e9),
+                String.format("%.0f", latency.getCount() / (elapsedNanos / 1e9)),
+                String.format("%.3fms", latency.getPercentile(50) / 1e6), String.format("%.3fms", latency.getPercentile(99) / 1e6),
+                String.format("%.3fms", latency.getMax() / 1e6)});
+    }
+
+    private void printReport(PrintStream out, String dataset, int students) {
+        out.println("Replay of " + dataset + " (" + students + " students, " + rate + " ops/s for " + seconds + " s on " + threads + " threads)");
+        out.println(String.format("%-18s %10s %10s %12s %12s %12s %12s", "stage", "items", "seconds", "items/s", "p50", "p99", "max"));
+        for(String[] row : report) {
+            out.println(String.format("%-18s %10s %10s %12s %12s %12s %12s", (Object[]) row));
+        }
+    }
+
+    /**
+     * Runs the harness from the command line.
+     *
+     * @param args dataset, optional operations per second, optional seconds and optional threads
+     * @throws Exception if the dataset cannot be read or the replay is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length < 1) {
+            System.err.println("Usage: java ReplayHarness <dataset> [opsPerSecond] [seconds] [threads]");
+            return;
+        }
+        int rate = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        new ReplayHarness(rate, seconds, threads).run(args[0]);
+    }
+}
@@ -0,0 +1,388 @@
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Evaluates many roommate matching and pod formation what-if scenarios in parallel over
+ * one shared, read-only StudentTable.
+ *
+ * Scenarios never write to the table or to student objects: each one matches with
+ * GaleShapley.matchRoommates into its own int[] of roommate ids, and forms pods on its own
+ * copy of the edge arrays of a shared IndexedGraph, derived by adding its roommate pairs to
+ * a base graph scored without roommate points. Scenarios are therefore independent and run
+ * on all cores at once; each pod formation runs single-threaded so the scenarios, not the
+ * components inside one scenario, are the unit of parallelism.
+ *
+ * Every result carries the same quality metrics so scenarios can be compared directly:
+ * stability violations (blocking pairs under the full preference lists), the number of
+ * students with preferences left without a roommate, and the total intra-pod weight.
+ */
+public class ScenarioRunner {
+    /** Preference cutoff that considers every preference. */
+    public static final int ALL_PREFERENCES = Integer.MAX_VALUE;
+
+    private final StudentTable table;
+    private final ConnectionScorer.Weights weights;
+    private IndexedGraph baseGraph;
+    private int parallelism;
+
+    /**
+     * One what-if configuration.
+     */
+    public static final class Scenario {
+        private final String name;
+        private final int preferenceCutoff;
+        private final int podSize;
+        private final long podTimeBudgetMillis;
+
+        /**
+         * Constructs a scenario with the default pod refinement budget.
+         *
+         * @param name the display name of the scenario
+         * @param preferenceCutoff the number of leading preferences matching considers, or ALL_PREFERENCES
+         * @param podSize the pod size, or 0 to skip pod formation
+         */
+        public Scenario(String name, int preferenceCutoff, int podSize) {
+            this(name, preferenceCutoff, podSize, PodFormation.DEFAULT_TIME_BUDGET_MILLIS);
+        }
+
+        /**
+         * Constructs a scenario.
+         *
+         * @param name the display name of the scenario
+         * @param preferenceCutoff the number of leading preferences matching considers, or ALL_PREFERENCES
+         * @param podSize the pod size, or 0 to skip pod formation
+         * @param podTimeBudgetMillis the refinement budget of pod formation
+         */
+        public Scenario(String name, int preferenceCutoff, int podSize, long podTimeBudgetMillis) {
+            if(preferenceCutoff < 0) {
+                throw new IllegalArgumentException("Preference cutoff must not be negative: " + preferenceCutoff);
+            }
+            if(podSize < 0) {
+                throw new IllegalArgumentException("Pod size must not be negative: " + podSize);
+            }
+            this.name = name;
+            this.preferenceCutoff = preferenceCutoff;
+            this.podSize = podSize;
+            this.podTimeBudgetMillis = podTimeBudgetMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPreferenceCutoff() {
+            return preferenceCutoff;
+        }
+
+        public int getPodSize() {
+            return podSize;
+        }
+
+        public long getPodTimeBudgetMillis() {
+            return podTimeBudgetMillis;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * The outcome of one scenario.
+     */
+    public static final class Result {
+        private final Scenario scenario;
+        private final int[] roommates;
+        private final int matchedPairs;
+        private final int unmatched;
+        private final int stabilityViolations;
+        private final int[][] pods;
+        private final long intraPodWeight;
+        private final long elapsedMillis;
+
+        private Result(Scenario scenario, int[] roommates, int matchedPairs, int unmatched, int stabilityViolations,
+                       int[][] pods, long intraPodWeight, long elapsedMillis) {
+            this.scenario = scenario;
+            this.roommates = roommates;
+            this.matchedPairs = matchedPairs;
+            this.unmatched = unmatched;
+            this.stabilityViolations = stabilityViolations;
+            this.pods = pods;
+            this.intraPodWeight = intraPodWeight;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public Scenario getScenario() {
+            return scenario;
+        }
+
+        /**
+         * Returns the roommate id of every student as produced by matching, or -1 if unmatched.
+         * @return the roommate ids, indexed by student id
+         */
+        public int[] getRoommates() {
+            return roommates;
+        }
+
+        public int getMatchedPairs() {
+            return matchedPairs;
+        }
+
+        /**
+         * Returns the number of students with at least one preference who have no roommate.
+         * @return the unmatched count
+         */
+        public int getUnmatched() {
+            return unmatched;
+        }
+
+        /**
+         * Returns the number of blocking pairs: two students who list each other and who both
+         * prefer each other to their assigned roommate, judged on their full preference lists.
+         * @return the stability violation count
+         */
+        public int getStabilityViolations() {
+            return stabilityViolations;
+        }
+
+        /**
+         * Returns the pods as arrays of student ids, empty when the scenario formed no pods.
+         * @return the pods
+         */
+        public int[][] getPods() {
+            return pods;
+        }
+
+        public long getIntraPodWeight() {
+            return intraPodWeight;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-24s %8d %9d %10d %6d %14d %8d", scenario.name, matchedPairs, unmatched,
+                    stabilityViolations, pods.length, intraPodWeight, elapsedMillis);
+        }
+    }
+
+    /**
+     * Constructs a runner scoring pods with the default weights.
+     * @param table the students every scenario is evaluated on; it is never modified
+     */
+    public ScenarioRunner(StudentTable table) {
+        this(table, ConnectionScorer.Weights.DEFAULT);
+    }
+
+    /**
+     * Constructs a runner.
+     *
+     * @param table the students every scenario is evaluated on; it is never modified
+     * @param weights the weights pods are scored with, including the roommate weight added per matched pair
+     */
+    public ScenarioRunner(StudentTable table, ConnectionScorer.Weights weights) {
+        this.table = table;
+        this.weights = weights == null ? ConnectionScorer.Weights.DEFAULT : weights;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        // Views are created lazily and not thread-safe, so create them before any scenario runs.
+        table.views();
+    }
+
+    /**
+     * Sets how many scenarios are evaluated concurrently.
+     * @param parallelism the number of worker threads, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Supplies the graph pods are formed on instead of the exact graph built on first use,
+     * e.g. a snapshot of a SparseGraphBuilder graph for large tables. Index i of the snapshot
+     * must be table id i, as with IndexedGraph.from(graph, table.views()), and its weights
+     * must not include roommate points, since each scenario adds its own.
+     *
+     * @param baseGraph the base snapshot
+     */
+    public void setBaseGraph(IndexedGraph baseGraph) {
+        if(baseGraph.size() != table.size()) {
+            throw new IllegalArgumentException("Base graph size " + baseGraph.size() + " does not match table size " + table.size());
+        }
+        this.baseGraph = baseGraph;
+    }
+
+    /**
+     * Evaluates every scenario, in parallel.
+     *
+     * @param scenarios the scenarios to evaluate
+     * @return one result per scenario, in the same order
+     */
+    public List<Result> run(List<Scenario> scenarios) {
+        for(Scenario s : scenarios) {
+            if(s.podSize > 0) {
+                ensureBaseGraph();
+                break;
+            }
+        }
+        List<Callable<Result>> tasks = new ArrayList<>();
+        for(Scenario s : scenarios) {
+            tasks.add(() -> evaluate(s));
+        }
+        List<Result> results = new ArrayList<>();
+        if(tasks.isEmpty()) {
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()));
+        try {
+            for(Future<Result> f : executor.invokeAll(tasks)) {
+                results.add(f.get());
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Scenario run interrupted", e);
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException("Scenario failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Builds the exact graph without roommate points, once, before scenarios share it.
+     */
+    private void ensureBaseGraph() {
+        if(baseGraph == null) {
+            ConnectionScorer.Weights withoutRoommate = new ConnectionScorer.Weights(0, weights.getSharedInternship(),
+                    weights.getSameMajor(), weights.getSameAge());
+            baseGraph = IndexedGraph.from(new StudentGraph(table, withoutRoommate), table.views());
+        }
+    }
+
+    private Result evaluate(Scenario scenario) {
+        long start = System.nanoTime();
+        int n = table.size();
+        int[] roommates = GaleShapley.matchRoommates(table, scenario.preferenceCutoff);
+
+        // A dumped student keeps a stale roommate id, so only reciprocal pairs count as matched.
+        int[] partner = new int[n];
+        int matchedPairs = 0;
+        int unmatched = 0;
+        for(int s=0; s<n; s++) {
+            int r = roommates[s];
+            partner[s] = r >= 0 && roommates[r] == s ? r : -1;
+            if(partner[s] > s) {
+                matchedPairs++;
+            }
+            if(partner[s] < 0 && table.preferenceCount(s) > 0) {
+                unmatched++;
+            }
+        }
+        int violations = countBlockingPairs(table, partner);
+
+        int[][] pods = new int[0][];
+        long intraPodWeight = 0;
+        if(scenario.podSize > 0) {
+            IndexedGraph ig = weights.getRoommate() == 0 ? baseGraph : baseGraph.withPairWeights(partner, weights.getRoommate());
+            PodFormation formation = new PodFormation(null);
+            formation.setParallelism(1);
+            formation.setTimeBudgetMillis(scenario.podTimeBudgetMillis);
+            List<List<UniversityStudent>> formed = formation.formPods(ig, scenario.podSize);
+            pods = new int[formed.size()][];
+            for(int p=0; p<pods.length; p++) {
+                List<UniversityStudent> pod = formed.get(p);
+                pods[p] = new int[pod.size()];
+                for(int k=0; k<pods[p].length; k++) {
+                    pods[p][k] = ig.indexOf(pod.get(k));
+                }
+            }
+            intraPodWeight = formation.getTotalIntraPodWeight();
+        }
+        return new Result(scenario, roommates, matchedPairs, unmatched, violations, pods, intraPodWeight,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Counts the pairs of students who list each other and who both rank each other above
+     * their partner, using full preference lists and last-occurrence ranks as matching does.
+     *
+     * @param table the students
+     * @param partner the reciprocal roommate id of every student, or -1
+     * @return the number of blocking pairs
+     */
+    public static int countBlockingPairs(StudentTable table, int[] partner) {
+        int count = 0;
+        for(int a=0; a<table.size(); a++) {
+            int currentRank = partner[a] < 0 ? Integer.MAX_VALUE : GaleShapley.rankOf(table, a, partner[a], ALL_PREFERENCES);
+            for(int r=0; r<table.preferenceCount(a) && r < currentRank; r++) {
+                int b = table.preferenceId(a, r);
+                // Each pair is counted once, from its smaller id, at its last occurrence in the list.
+                if(b <= a || b == partner[a] || GaleShapley.rankOf(table, a, b, ALL_PREFERENCES) != r) {
+                    continue;
+                }
+                int rankOfA = GaleShapley.rankOf(table, b, a, ALL_PREFERENCES);
+                int currentRankOfB = partner[b] < 0 ? Integer.MAX_VALUE : GaleShapley.rankOf(table, b, partner[b], ALL_PREFERENCES);
+                if(rankOfA != Integer.MAX_VALUE && rankOfA < currentRankOfB) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int[] parseList(String arg) {
+        String[] parts = arg.split(",");
+        int[] values = new int[parts.length];
+        for(int i=0; i<parts.length; i++) {
+            String p = parts[i].trim();
+            values[i] = p.equalsIgnoreCase("all") ? ALL_PREFERENCES : Integer.parseInt(p);
+        }
+        return values;
+    }
+
+    /**
+     * Evaluates every combination of preference cutoff and pod size on a dataset.
+     *
+     * @param args dataset, optional comma-separated cutoffs ("all" for no cutoff), optional
+     *             comma-separated pod sizes (0 for no pods) and optional pod budget in milliseconds
+     * @throws IOException if the dataset cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.err.println("Usage: java ScenarioRunner <dataset> [cutoffs] [podSizes] [podBudgetMillis]");
+            return;
+        }
+        int[] cutoffs = parseList(args.length > 1 ? args[1] : "1,2,3,all");
+        int[] podSizes = parseList(args.length > 2 ? args[2] : "0,4,6");
+        long budget = args.length > 3 ? Long.parseLong(args[3]) : 500;
+
+        StudentTable table = DataParser.parseStudentTable(args[0]);
+        List<Scenario> scenarios = new ArrayList<>();
+        for(int cutoff : cutoffs) {
+            for(int podSize : podSizes) {
+                String name = "cutoff=" + (cutoff == ALL_PREFERENCES ? "all" : Integer.toString(cutoff)) + " pods=" + podSize;
+                scenarios.add(new Scenario(name, cutoff, podSize, budget));
+            }
+        }
+
+        ScenarioRunner runner = new ScenarioRunner(table);
+        long start = System.nanoTime();
+        List<Result> results = runner.run(scenarios);
+        long wall = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println(String.format("%-24s %8s %9s %10s %6s %14s %8s", "scenario", "pairs", "unmatched", "violations", "pods", "intra weight", "ms"));
+        long sum = 0;
+        for(Result r : results) {
+            System.out.println(r);
+            sum += r.getElapsedMillis();
+        }
+        System.out.println(scenarios.size() + " scenarios on " + table.size() + " students in " + wall + " ms wall, " + sum + " ms summed");
+    }
+}
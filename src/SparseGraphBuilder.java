@@ -0,0 +1,367 @@
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Builds a sparsified StudentGraph for very large cohorts, keeping only about the
+ * maxDegree strongest edges of every student instead of every pair with a positive score.
+ *
+ * Candidate pairs come from cheap sketches instead of comparing every pair of students:
+ * roommates, students whose previousInternships collide in a MinHash LSH band (banded
+ * signatures over the internship set), and students sharing a major or a major and age.
+ * Large buckets are not expanded quadratically; their members are shuffled and each one is
+ * paired only with the next few members. Every candidate pair is scored exactly with
+ * calculateConnectionStrength, and edges are then taken strongest first while both
+ * endpoints still have fewer than maxDegree edges, so no student exceeds the bound.
+ *
+ * estimateRecall compares the result against the exact graph for a sample of students.
+ */
+public class SparseGraphBuilder {
+    public static final int DEFAULT_MAX_DEGREE = 32;
+    public static final int DEFAULT_BANDS = 16;
+    public static final int DEFAULT_ROWS_PER_BAND = 2;
+
+    private static final Metrics.Histogram BUILD_TIME = Metrics.histogram("graph.sparse.build.ns");
+    private static final Metrics.Counter CANDIDATES = Metrics.counter("graph.sparse.candidates");
+
+    private final int maxDegree;
+    private int bands;
+    private int rowsPerBand;
+    private int window;
+    private long seed;
+    private long lastCandidatePairs;
+
+    /**
+     * Constructs a builder that keeps at most maxDegree edges per student.
+     *
+     * @param maxDegree the maximum number of edges of any student
+     */
+    public SparseGraphBuilder(int maxDegree) {
+        if(maxDegree <= 0) {
+            throw new IllegalArgumentException("Max degree must be positive: " + maxDegree);
+        }
+        this.maxDegree = maxDegree;
+        this.bands = DEFAULT_BANDS;
+        this.rowsPerBand = DEFAULT_ROWS_PER_BAND;
+        this.window = 2 * maxDegree;
+        this.seed = 42L;
+    }
+
+    /**
+     * Sets the MinHash LSH shape. More bands find more weakly overlapping pairs;
+     * more rows per band make a collision require a closer match.
+     *
+     * @param bands the number of bands
+     * @param rowsPerBand the number of MinHash values combined in each band
+     */
+    public void setBands(int bands, int rowsPerBand) {
+        if(bands <= 0 || rowsPerBand <= 0) {
+            throw new IllegalArgumentException("Bands and rows per band must be positive: " + bands + ", " + rowsPerBand);
+        }
+        this.bands = bands;
+        this.rowsPerBand = rowsPerBand;
+    }
+
+    /**
+     * Sets how many following members each student is paired with inside a bucket.
+     * @param window the number of candidates per student per bucket
+     */
+    public void setWindow(int window) {
+        if(window <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        this.window = window;
+    }
+
+    /**
+     * Sets the seed of the hash functions and bucket shuffles, so builds are reproducible.
+     * @param seed the random seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * Returns the number of distinct candidate pairs scored by the last build.
+     * @return the candidate pair count
+     */
+    public long getLastCandidatePairs() {
+        return lastCandidatePairs;
+    }
+
+    /**
+     * Builds the degree-bounded graph over the given students.
+     *
+     * @param students the students to connect
+     * @return a graph containing every student and at most maxDegree edges per student
+     */
+    public StudentGraph build(List<UniversityStudent> students) {
+        long start = Metrics.startTimer();
+        StudentGraph graph = new StudentGraph();
+        if(students == null) {
+            return graph;
+        }
+        int n = students.size();
+        Map<UniversityStudent, List<StudentGraph.Edge>> adjacency = graph.adjacency();
+        Map<UniversityStudent, Integer> indexOf = new IdentityHashMap<>(n * 2);
+        for(int i=0; i<n; i++) {
+            adjacency.putIfAbsent(students.get(i), new ArrayList<StudentGraph.Edge>());
+            indexOf.put(students.get(i), i);
+        }
+
+        PairList pairs = new PairList();
+        Random random = new Random(seed);
+        for(int i=0; i<n; i++) {
+            Integer j = indexOf.get(students.get(i).getRoommate());
+            if(j != null && j != i) {
+                pairs.add(i, j);
+            }
+        }
+        for(List<Integer> bucket : internshipBuckets(students)) {
+            pairWithinWindow(bucket, random, pairs);
+        }
+        Map<String, List<Integer>> byMajorAge = new HashMap<>();
+        Map<String, List<Integer>> byMajor = new HashMap<>();
+        for(int i=0; i<n; i++) {
+            UniversityStudent s = students.get(i);
+            byMajorAge.computeIfAbsent(s.major + "\u0000" + s.age, k -> new ArrayList<>()).add(i);
+            byMajor.computeIfAbsent(s.major, k -> new ArrayList<>()).add(i);
+        }
+        for(List<Integer> bucket : byMajorAge.values()) {
+            pairWithinWindow(bucket, random, pairs);
+        }
+        for(List<Integer> bucket : byMajor.values()) {
+            pairWithinWindow(bucket, random, pairs);
+        }
+
+        long[] candidates = pairs.distinct();
+        lastCandidatePairs = candidates.length;
+        CANDIDATES.add(candidates.length);
+
+        // Score every candidate exactly, then bucket the edges by weight so they can be
+        // taken strongest first while keeping the candidate order within a weight.
+        int[] weights = new int[candidates.length];
+        int maxWeight = 0;
+        for(int c=0; c<candidates.length; c++) {
+            UniversityStudent a = students.get((int) (candidates[c] >>> 32));
+            UniversityStudent b = students.get((int) candidates[c]);
+            weights[c] = a.calculateConnectionStrength(b);
+            maxWeight = Math.max(maxWeight, weights[c]);
+        }
+        int[] startOf = new int[maxWeight + 2];
+        for(int c=0; c<candidates.length; c++) {
+            if(weights[c] > 0) {
+                startOf[maxWeight - weights[c] + 1]++;
+            }
+        }
+        for(int w=1; w<startOf.length; w++) {
+            startOf[w] += startOf[w - 1];
+        }
+        int[] order = new int[startOf[startOf.length - 1]];
+        for(int c=0; c<candidates.length; c++) {
+            if(weights[c] > 0) {
+                order[startOf[maxWeight - weights[c]]++] = c;
+            }
+        }
+
+        int[] degree = new int[n];
+        for(int c : order) {
+            int a = (int) (candidates[c] >>> 32);
+            int b = (int) candidates[c];
+            if(degree[a] < maxDegree && degree[b] < maxDegree) {
+                graph.addEdge(students.get(a), students.get(b), weights[c]);
+                degree[a]++;
+                degree[b]++;
+            }
+        }
+        BUILD_TIME.recordSince(start);
+        return graph;
+    }
+
+    /**
+     * Groups students by the MinHash signature of their internship set, one grouping per band.
+     * Students without internships are left out.
+     */
+    private List<List<Integer>> internshipBuckets(List<UniversityStudent> students) {
+        int hashes = bands * rowsPerBand;
+        long[] salts = new long[hashes];
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        for(int h=0; h<hashes; h++) {
+            salts[h] = random.nextLong();
+        }
+
+        List<Map<Long, List<Integer>>> tables = new ArrayList<>();
+        for(int b=0; b<bands; b++) {
+            tables.add(new HashMap<>());
+        }
+        long[] signature = new long[hashes];
+        for(int i=0; i<students.size(); i++) {
+            List<String> internships = students.get(i).previousInternships;
+            if(internships == null || internships.isEmpty()) {
+                continue;
+            }
+            Arrays.fill(signature, Long.MAX_VALUE);
+            for(String company : internships) {
+                long base = company.hashCode() * 0x9E3779B97F4A7C15L;
+                for(int h=0; h<hashes; h++) {
+                    signature[h] = Math.min(signature[h], mix(base ^ salts[h]));
+                }
+            }
+            for(int b=0; b<bands; b++) {
+                long key = b;
+                for(int r=0; r<rowsPerBand; r++) {
+                    key = mix(key * 31 + signature[b * rowsPerBand + r]);
+                }
+                tables.get(b).computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<List<Integer>> buckets = new ArrayList<>();
+        for(Map<Long, List<Integer>> table : tables) {
+            for(List<Integer> bucket : table.values()) {
+                if(bucket.size() > 1) {
+                    buckets.add(bucket);
+                }
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Pairs every member of a bucket with the next window members after a shuffle, so a
+     * bucket of size b yields about b * window pairs instead of b * b / 2.
+     */
+    private void pairWithinWindow(List<Integer> bucket, Random random, PairList pairs) {
+        int size = bucket.size();
+        if(size < 2) {
+            return;
+        }
+        if(size > window + 1) {
+            Collections.shuffle(bucket, random);
+        }
+        for(int i=0; i<size; i++) {
+            int end = Math.min(size, i + 1 + window);
+            for(int j=i+1; j<end; j++) {
+                pairs.add(bucket.get(i), bucket.get(j));
+            }
+        }
+    }
+
+    /**
+     * Estimates how much of the exact graph the sparse graph keeps. For each sampled student
+     * the weights of its maxDegree strongest exact edges (from calculateConnectionStrength
+     * against every other student) are compared with the weights of its edges in the sparse
+     * graph; the result is the kept weight divided by the exact top weight over the sample.
+     *
+     * @param students the students the sparse graph was built from
+     * @param sparse the sparse graph
+     * @param sampleSize the number of students to sample
+     * @return the weighted recall between 0 and 1, or 1 if no sampled student has any edge
+     */
+    public double estimateRecall(List<UniversityStudent> students, StudentGraph sparse, int sampleSize) {
+        int n = students.size();
+        List<Integer> sample = new ArrayList<>();
+        for(int i=0; i<n; i++) {
+            sample.add(i);
+        }
+        Collections.shuffle(sample, new Random(seed));
+        sample = sample.subList(0, Math.min(sampleSize, n));
+
+        long exactWeight = 0;
+        long keptWeight = 0;
+        int[] scores = new int[n];
+        for(int i : sample) {
+            UniversityStudent s = students.get(i);
+            int positive = 0;
+            for(int j=0; j<n; j++) {
+                int w = j == i ? 0 : s.calculateConnectionStrength(students.get(j));
+                if(w > 0) {
+                    scores[positive++] = w;
+                }
+            }
+            Arrays.sort(scores, 0, positive);
+            for(int t=0; t<Math.min(maxDegree, positive); t++) {
+                exactWeight += scores[positive - 1 - t];
+            }
+            List<StudentGraph.Edge> edges = sparse.getNeighborView(s);
+            if(edges != null) {
+                for(StudentGraph.Edge e : edges) {
+                    keptWeight += e.getWeight();
+                }
+            }
+        }
+        return exactWeight == 0 ? 1.0 : (double) keptWeight / exactWeight;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Growable list of unordered index pairs packed into longs as (low << 32) | high.
+     */
+    private static final class PairList {
+        private long[] pairs = new long[1024];
+        private int size;
+
+        void add(int a, int b) {
+            if(a == b) {
+                return;
+            }
+            if(size == pairs.length) {
+                pairs = Arrays.copyOf(pairs, size * 2);
+            }
+            pairs[size++] = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+        }
+
+        long[] distinct() {
+            Arrays.sort(pairs, 0, size);
+            int kept = 0;
+            for(int i=0; i<size; i++) {
+                if(kept == 0 || pairs[i] != pairs[kept - 1]) {
+                    pairs[kept++] = pairs[i];
+                }
+            }
+            return Arrays.copyOf(pairs, kept);
+        }
+    }
+
+    /**
+     * Builds both the exact and the sparse graph for an input file and reports size, time and recall.
+     *
+     * @param args input file, optional max degree and optional recall sample size
+     * @throws IOException if the input cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.err.println("Usage: java SparseGraphBuilder <inputFile> [maxDegree [sampleSize]]");
+            return;
+        }
+        List<UniversityStudent> students = DataParser.parseStudents(args[0]);
+        GaleShapley.assignRoommates(students);
+        SparseGraphBuilder builder = new SparseGraphBuilder(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_DEGREE);
+        int sampleSize = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        long start = System.nanoTime();
+        StudentGraph sparse = builder.build(students);
+        long sparseMillis = (System.nanoTime() - start) / 1000000;
+        double recall = builder.estimateRecall(students, sparse, sampleSize);
+        GraphStatistics sparseStats = GraphStatistics.compute(sparse);
+        System.out.println("Sparse graph: " + sparseStats.getEdgeCount() + " edges, max degree " + builder.getMaxDegree()
+                + ", " + builder.getLastCandidatePairs() + " candidate pairs, " + sparseMillis + " ms");
+        System.out.printf("Weighted recall of top-%d edges over %d sampled students: %.3f%n",
+                builder.getMaxDegree(), Math.min(sampleSize, students.size()), recall);
+
+        if(students.size() <= 20000) {
+            start = System.nanoTime();
+            StudentGraph exact = new StudentGraph(students);
+            long exactMillis = (System.nanoTime() - start) / 1000000;
+            System.out.println("Exact graph: " + GraphStatistics.compute(exact).getEdgeCount() + " edges, " + exactMillis + " ms");
+        }
+    }
+}
@@ -6,6 +6,46 @@ import java.util.*;
  */
 public class StudentGraph {
     private Map<UniversityStudent, List<Edge>> adjList;
+    private List<EdgeListener> edgeListeners;
+    private final boolean readOnly;
+    private volatile long version;
+    private ConnectionScorer scorer;
+
+    private static final int SCORE_BLOCK = 1024;
+
+    private static final Metrics.Counter EDGES_ADDED = Metrics.counter("graph.edges.added");
+    private static final Metrics.Histogram BUILD_TIME = Metrics.histogram("graph.build.ns");
+
+    /**
+     * Receives a callback for every edge that is added, reweighted or removed, e.g. to keep
+     * statistics current.
+     */
+    public interface EdgeListener {
+        /**
+         * Called after an undirected edge has been added between two students.
+         * @param student one endpoint of the edge
+         * @param neighborStudent the other endpoint of the edge
+         * @param weight the edge weight
+         */
+        void edgeAdded(UniversityStudent student, UniversityStudent neighborStudent, int weight);
+
+        /**
+         * Called after the weight of an existing undirected edge has changed.
+         * @param student one endpoint of the edge
+         * @param neighborStudent the other endpoint of the edge
+         * @param oldWeight the weight before the change
+         * @param newWeight the weight after the change
+         */
+        void edgeWeightChanged(UniversityStudent student, UniversityStudent neighborStudent, int oldWeight, int newWeight);
+
+        /**
+         * Called after an undirected edge between two students has been removed.
+         * @param student one endpoint of the edge
+         * @param neighborStudent the other endpoint of the edge
+         * @param weight the weight the edge had
+         */
+        void edgeRemoved(UniversityStudent student, UniversityStudent neighborStudent, int weight);
+    }
 
     /**
      * Represents an edge in the student graph with a neighbor and connection weight.
@@ -52,6 +92,8 @@ public class StudentGraph {
      */
     public StudentGraph() {
         adjList = new HashMap<>();
+        edgeListeners = new ArrayList<>();
+        readOnly = false;
     }
 
     /**
@@ -59,27 +101,114 @@ public class StudentGraph {
      * @param students the list of students to add to the graph
      */
     public StudentGraph(List<UniversityStudent> students) {
+        this(students, ConnectionScorer.Weights.DEFAULT);
+    }
+
+    /**
+     * Constructs a student graph from a list of students with edges scored by the given weights.
+     * @param students the list of students to add to the graph
+     * @param weights the points awarded per matching attribute
+     */
+    public StudentGraph(List<UniversityStudent> students, ConnectionScorer.Weights weights) {
         adjList = new HashMap<>();
+        edgeListeners = new ArrayList<>();
+        readOnly = false;
         if(students == null) {
             return;
         }
+        long start = Metrics.startTimer();
         for(int i=0; i<students.size(); i++) {
             adjList.putIfAbsent(students.get(i), new ArrayList<Edge>());
         }
-        
-        // Create edges for every student connection. No edge between two student implies connection strength is zero.
+        scorer = new ConnectionScorer(students, weights);
+        connectAll(students);
+        BUILD_TIME.recordSince(start);
+    }
+
+    /**
+     * Constructs a student graph over the views of a columnar student table, scoring the
+     * table columns directly. Every node is the table's view of that student.
+     * @param table the students to add to the graph
+     * @param weights the points awarded per matching attribute
+     */
+    public StudentGraph(StudentTable table, ConnectionScorer.Weights weights) {
+        adjList = new HashMap<>();
+        edgeListeners = new ArrayList<>();
+        readOnly = false;
+        long start = Metrics.startTimer();
+        List<UniversityStudent> students = table.views();
         for(int i=0; i<students.size(); i++) {
-            for(int j=i+1; j<students.size(); j++) {
-                UniversityStudent s1 = students.get(i);
-                UniversityStudent s2 = students.get(j);
-                int weight = s1.calculateConnectionStrength(s2);
-                if(weight > 0) {
-                    addEdge(s1, s2, weight);
+            adjList.put(students.get(i), new ArrayList<Edge>());
+        }
+        scorer = new ConnectionScorer(table, weights);
+        connectAll(students);
+        BUILD_TIME.recordSince(start);
+    }
+
+    /**
+     * Adds an edge for every pair of indexed students with a positive score, one block of candidates at a time.
+     * @param students the students indexed by the scorer, in index order
+     */
+    private void connectAll(List<UniversityStudent> students) {
+        // Create edges for every student connection. No edge between two student implies connection strength is zero.
+        int n = students.size();
+        int[] scores = new int[Math.min(SCORE_BLOCK, Math.max(1, n))];
+        for(int i=0; i<n; i++) {
+            for(int from=i+1; from<n; from+=SCORE_BLOCK) {
+                int to = Math.min(n, from + SCORE_BLOCK);
+                scorer.scoreBlock(i, from, to, scores);
+                for(int j=from; j<to; j++) {
+                    int weight = scores[j - from];
+                    if(weight > 0) {
+                        addEdge(students.get(i), students.get(j), weight);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * Constructs a read-only graph over an existing adjacency map, used for published snapshots.
+     * The map and its edge lists are shared, so the caller must never modify them afterwards.
+     * @param adjList the adjacency map to wrap
+     * @param version the version reported by the snapshot
+     */
+    StudentGraph(Map<UniversityStudent, List<Edge>> adjList, long version) {
+        this.adjList = adjList;
+        this.edgeListeners = new ArrayList<>();
+        this.readOnly = true;
+        this.version = version;
+    }
+
+    /**
+     * Returns the mutable map backing this graph, for builders such as SparseGraphBuilder that
+     * fill a freshly constructed graph directly instead of edge by edge. Writes through the map
+     * bypass edge listeners and the version counter. Graphs whose adjacency is not held in a
+     * map of their own, such as disk-backed graphs and concurrent snapshots, throw
+     * UnsupportedOperationException.
+     * @return the live adjacency map
+     */
+    Map<UniversityStudent, List<Edge>> adjacency() {
+        return adjList;
+    }
+
+    /**
+     * Returns a counter that changes whenever an edge is added, so derived results
+     * such as cached referral paths can tell whether they are still current.
+     * @return the graph version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Tells whether this graph is an immutable snapshot.
+     * @return true if addEdge is not permitted
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     /**
      * adds an undirected edge between two students.
      * 
@@ -91,12 +220,191 @@ public class StudentGraph {
         if(student == null || neighborStudent == null) {
             return;
         }
+        if(readOnly) {
+            throw new UnsupportedOperationException("Graph snapshot is read-only");
+        }
 
         adjList.putIfAbsent(student, new ArrayList<Edge>());
         adjList.putIfAbsent(neighborStudent, new ArrayList<Edge>());
 
         adjList.get(student).add(new Edge(neighborStudent, weight));
         adjList.get(neighborStudent).add(new Edge(student, weight));
+        version++;
+        EDGES_ADDED.increment();
+
+        for(EdgeListener listener : edgeListeners) {
+            listener.edgeAdded(student, neighborStudent, weight);
+        }
+    }
+
+    /**
+     * Adds a student to the graph and connects it to every existing student it has a positive
+     * connection strength with, scored with the weights the graph was built with.
+     * Students already in the graph are left unchanged.
+     *
+     * @param student the student to add
+     */
+    public void addStudent(UniversityStudent student) {
+        addStudents(Collections.singletonList(student));
+    }
+
+    /**
+     * Adds a batch of students in order, as addStudent would one at a time. Students are
+     * scored against everyone already in the graph and against earlier students of the batch,
+     * so a graph grown batch by batch has the same edges, in the same order, as one built from
+     * the whole list, provided roommates are assigned before the students are added or
+     * refreshRoommates is called afterwards.
+     *
+     * @param students the students to add
+     */
+    public void addStudents(List<UniversityStudent> students) {
+        if(readOnly) {
+            throw new UnsupportedOperationException("Graph snapshot is read-only");
+        }
+        if(scorer == null) {
+            scorer = new ConnectionScorer(new ArrayList<UniversityStudent>(), ConnectionScorer.Weights.DEFAULT);
+        }
+        // Students that only arrived through addEdge are indexed before scoring against them.
+        for(UniversityStudent s : adjList.keySet()) {
+            if(scorer.indexOf(s) < 0) {
+                scorer.add(s);
+            }
+        }
+
+        for(UniversityStudent student : students) {
+            if(student == null || adjList.containsKey(student)) {
+                continue;
+            }
+            adjList.put(student, new ArrayList<Edge>());
+            int j = scorer.add(student);
+            for(int i=0; i<j; i++) {
+                UniversityStudent other = scorer.student(i);
+                if(other == student || scorer.indexOf(other) != i) {
+                    continue;
+                }
+                int weight = scorer.score(i, j);
+                if(weight > 0) {
+                    addEdge(other, student, weight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-scores the pairs whose roommate assignment changed since the students were added,
+     * e.g. after GaleShapley ran over students already in the graph. Edges gain or lose the
+     * roommate weight, and are inserted or removed when their strength crosses zero, so the
+     * graph matches one built after the roommates were assigned.
+     *
+     * @return the number of student pairs that were re-scored
+     */
+    public int refreshRoommates() {
+        if(readOnly) {
+            throw new UnsupportedOperationException("Graph snapshot is read-only");
+        }
+        if(scorer == null) {
+            return 0;
+        }
+        Set<Long> pairs = new LinkedHashSet<>();
+        for(int i=0; i<scorer.size(); i++) {
+            int before = scorer.updateRoommate(i);
+            int after = scorer.roommateOf(i);
+            int self = scorer.indexOf(scorer.student(i));
+            if(before != after) {
+                for(int mate : new int[] {before, after}) {
+                    if(mate >= 0 && mate != self) {
+                        pairs.add((long) Math.min(self, mate) << 32 | Math.max(self, mate));
+                    }
+                }
+            }
+        }
+        for(long pair : pairs) {
+            int lo = (int) (pair >>> 32);
+            int hi = (int) pair;
+            setEdgeWeight(scorer.student(lo), scorer.student(hi), scorer.score(lo, hi));
+        }
+        return pairs.size();
+    }
+
+    /**
+     * Replaces the weight of the edge between two students in both directions. A zero weight
+     * removes the edge; a missing edge is inserted in scorer index order. Listeners are told
+     * about the change, and the version only advances if the graph actually changed.
+     */
+    private void setEdgeWeight(UniversityStudent a, UniversityStudent b, int weight) {
+        int next = Math.max(0, weight);
+        int old = setDirectedWeight(a, b, next);
+        setDirectedWeight(b, a, next);
+        if(old == next || (old < 0 && next == 0)) {
+            return;
+        }
+        version++;
+        if(old < 0) {
+            EDGES_ADDED.increment();
+            for(EdgeListener listener : edgeListeners) {
+                listener.edgeAdded(a, b, next);
+            }
+        }
+        else if(next == 0) {
+            for(EdgeListener listener : edgeListeners) {
+                listener.edgeRemoved(a, b, old);
+            }
+        }
+        else {
+            for(EdgeListener listener : edgeListeners) {
+                listener.edgeWeightChanged(a, b, old, next);
+            }
+        }
+    }
+
+    /**
+     * Sets the weight of the edge from one student to another, removing it for a zero weight.
+     * Returns the previous weight, or -1 if there was no edge.
+     */
+    private int setDirectedWeight(UniversityStudent from, UniversityStudent to, int weight) {
+        List<Edge> edges = adjList.get(from);
+        for(int k=0; k<edges.size(); k++) {
+            if(edges.get(k).getNeighbor() == to) {
+                int old = edges.get(k).getWeight();
+                if(weight > 0) {
+                    if(old != weight) {
+                        edges.set(k, new Edge(to, weight));
+                    }
+                }
+                else {
+                    edges.remove(k);
+                }
+                return old;
+            }
+        }
+        if(weight <= 0) {
+            return -1;
+        }
+        int target = scorer.indexOf(to);
+        int k = 0;
+        while(k < edges.size() && scorer.indexOf(edges.get(k).getNeighbor()) < target) {
+            k++;
+        }
+        edges.add(k, new Edge(to, weight));
+        return -1;
+    }
+
+    /**
+     * Registers a listener that is notified of every edge added, reweighted or removed after registration.
+     * @param listener the listener to add
+     */
+    public void addEdgeListener(EdgeListener listener) {
+        if(listener != null) {
+            edgeListeners.add(listener);
+        }
+    }
+
+    /**
+     * Unregisters a previously added edge listener.
+     * @param listener the listener to remove
+     */
+    public void removeEdgeListener(EdgeListener listener) {
+        edgeListeners.remove(listener);
     }
     
     /**
@@ -117,12 +425,26 @@ public class StudentGraph {
         return neighborList;
     }
 
+    /**
+     * Returns a read-only view of the edges of a given student without copying them.
+     * Intended for bulk traversals (export, statistics) that only read the adjacency list.
+     * @param student the student to query
+     * @return unmodifiable list of edges, or null if student is not in graph
+     */
+    public List<StudentGraph.Edge> getNeighborView(UniversityStudent student) {
+        if(student == null) {
+            return null;
+        }
+        List<StudentGraph.Edge> edges = adjList.get(student);
+        return edges == null ? null : Collections.unmodifiableList(edges);
+    }
+
     /**
      * Returns all students in the graph.
      * @return set of all UniversityStudent nodes
      */
     public Set<UniversityStudent> getAllNodes() {
-        return adjList.keySet();
+        return readOnly ? Collections.unmodifiableSet(adjList.keySet()) : adjList.keySet();
     }
 
     /**
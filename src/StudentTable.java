@@ -0,0 +1,410 @@
+import java.util.*;
+
+/**
+ * Column-oriented store of student records for bulk workloads.
+ *
+ * Each field is a primitive array indexed by student id (0..size-1). Names, genders, majors
+ * and companies are dictionary-encoded: the column holds an int code and every distinct
+ * string is stored once. Roommate preferences and internships are variable-length lists kept
+ * in compressed sparse row form (a start offset per student into one flat code array), so a
+ * student costs a few dozen bytes instead of an object graph of strings and ArrayLists.
+ *
+ * Code that needs UniversityStudent objects can ask for views: lightweight UniversityStudent
+ * instances whose strings come from the dictionaries and whose lists are read-only windows
+ * onto the columns. Roommates assigned on a view are written through to the table.
+ */
+public class StudentTable {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Dictionary names = new Dictionary();
+    private final Dictionary genders = new Dictionary();
+    private final Dictionary majors = new Dictionary();
+    private final Dictionary companies = new Dictionary();
+
+    private int size;
+    private int[] nameCode = new int[INITIAL_CAPACITY];
+    private int[] age = new int[INITIAL_CAPACITY];
+    private int[] genderCode = new int[INITIAL_CAPACITY];
+    private int[] year = new int[INITIAL_CAPACITY];
+    private int[] majorCode = new int[INITIAL_CAPACITY];
+    private double[] gpa = new double[INITIAL_CAPACITY];
+    private int[] roommate = new int[INITIAL_CAPACITY];
+    // Preferences hold name codes, internships hold company codes.
+    private int[] preferenceStart = new int[INITIAL_CAPACITY + 1];
+    private int[] preferenceCodes = new int[INITIAL_CAPACITY];
+    private int[] internshipStart = new int[INITIAL_CAPACITY + 1];
+    private int[] internshipCodes = new int[INITIAL_CAPACITY];
+    // Id of the last student with each name code, -1 if no student has that name.
+    private int[] idOfNameCode = new int[INITIAL_CAPACITY];
+
+    private List<UniversityStudent> views;
+
+    /**
+     * Append-only string dictionary: every distinct string gets the next int code.
+     * Lookups use an open-addressing table of codes rather than a HashMap, so an entry
+     * costs the string itself plus a few bytes instead of a map node and a boxed code.
+     */
+    public static final class Dictionary {
+        private String[] values = new String[16];
+        private int[] slots = new int[32];
+        private int size;
+
+        /**
+         * Returns the code of a string, assigning a new one on first sight.
+         * @param value the string to encode
+         * @return the code of the string
+         */
+        public int encode(String value) {
+            int slot = slotOf(value);
+            if(slots[slot] != 0) {
+                return slots[slot] - 1;
+            }
+            if(size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value;
+            slots[slot] = ++size;
+            if(size * 2 > slots.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        /**
+         * Returns the code of a string without assigning one.
+         * @param value the string to look up
+         * @return the code, or -1 if the string was never encoded
+         */
+        public int codeOf(String value) {
+            return slots[slotOf(value)] - 1;
+        }
+
+        public String decode(int code) {
+            if(code < 0 || code >= size) {
+                throw new IndexOutOfBoundsException("Code " + code + " out of bounds for size " + size);
+            }
+            return values[code];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns the slot holding the string, or the empty slot where it would be inserted.
+         */
+        private int slotOf(String value) {
+            int mask = slots.length - 1;
+            int h = Objects.hashCode(value);
+            int slot = (h ^ (h >>> 16)) & mask;
+            while(slots[slot] != 0 && !Objects.equals(values[slots[slot] - 1], value)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for(int code=0; code<size; code++) {
+                int h = Objects.hashCode(values[code]);
+                int slot = (h ^ (h >>> 16)) & mask;
+                while(slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = code + 1;
+            }
+        }
+    }
+
+    /**
+     * A UniversityStudent backed by one row of the table.
+     */
+    public static final class View extends UniversityStudent {
+        private final StudentTable table;
+        private final int id;
+
+        private View(StudentTable table, int id) {
+            super(table.name(id), table.age[id], table.genders.decode(table.genderCode[id]), table.year[id],
+                    table.major(id), table.gpa[id], table.codeList(table.preferenceStart, table.preferenceCodes, table.names, id),
+                    table.codeList(table.internshipStart, table.internshipCodes, table.companies, id));
+            this.table = table;
+            this.id = id;
+        }
+
+        public StudentTable getTable() {
+            return table;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Sets the roommate on the view and, when it is a view of the same table, in the table.
+         */
+        @Override
+        public void setRoommate(UniversityStudent roommate) {
+            super.setRoommate(roommate);
+            if(roommate == null) {
+                table.roommate[id] = -1;
+            }
+            else if(roommate instanceof View && ((View) roommate).table == table) {
+                table.roommate[id] = ((View) roommate).id;
+            }
+        }
+    }
+
+    /**
+     * Constructs an empty table.
+     */
+    public StudentTable() {
+        Arrays.fill(idOfNameCode, -1);
+    }
+
+    /**
+     * Appends a student record.
+     *
+     * @param name the student name
+     * @param age the student age
+     * @param gender the student gender
+     * @param year the year of study
+     * @param major the major
+     * @param gpa the grade point average
+     * @param roommatePreferences preferred roommates by name, most preferred first
+     * @param internships previous internship companies
+     * @return the id of the new student
+     */
+    public int add(String name, int age, String gender, int year, String major, double gpa,
+                   List<String> roommatePreferences, List<String> internships) {
+        int id = size;
+        ensureCapacity(id + 1);
+        nameCode[id] = names.encode(name);
+        this.age[id] = age;
+        genderCode[id] = genders.encode(gender);
+        this.year[id] = year;
+        majorCode[id] = majors.encode(major);
+        this.gpa[id] = gpa;
+        roommate[id] = -1;
+
+        int pos = preferenceStart[id];
+        preferenceCodes = ensureRoom(preferenceCodes, pos + roommatePreferences.size());
+        for(String preferred : roommatePreferences) {
+            preferenceCodes[pos++] = names.encode(preferred);
+        }
+        preferenceStart[id + 1] = pos;
+
+        pos = internshipStart[id];
+        internshipCodes = ensureRoom(internshipCodes, pos + internships.size());
+        for(String company : internships) {
+            internshipCodes[pos++] = companies.encode(company);
+        }
+        internshipStart[id + 1] = pos;
+
+        if(idOfNameCode.length < names.size()) {
+            int old = idOfNameCode.length;
+            idOfNameCode = Arrays.copyOf(idOfNameCode, Math.max(old * 2, names.size()));
+            Arrays.fill(idOfNameCode, old, idOfNameCode.length, -1);
+        }
+        idOfNameCode[nameCode[id]] = id;
+        size = id + 1;
+        views = null;
+        return id;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity <= age.length) {
+            return;
+        }
+        int grown = Math.max(capacity, age.length * 2);
+        nameCode = Arrays.copyOf(nameCode, grown);
+        age = Arrays.copyOf(age, grown);
+        genderCode = Arrays.copyOf(genderCode, grown);
+        year = Arrays.copyOf(year, grown);
+        majorCode = Arrays.copyOf(majorCode, grown);
+        gpa = Arrays.copyOf(gpa, grown);
+        roommate = Arrays.copyOf(roommate, grown);
+        preferenceStart = Arrays.copyOf(preferenceStart, grown + 1);
+        internshipStart = Arrays.copyOf(internshipStart, grown + 1);
+    }
+
+    private static int[] ensureRoom(int[] array, int needed) {
+        return needed <= array.length ? array : Arrays.copyOf(array, Math.max(needed, array.length * 2));
+    }
+
+    private List<String> codeList(int[] start, int[] codes, Dictionary dictionary, int id) {
+        int from = start[id];
+        int to = start[id + 1];
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if(index < 0 || index >= to - from) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + (to - from));
+                }
+                return dictionary.decode(codes[from + index]);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int id) {
+        return names.decode(nameCode[id]);
+    }
+
+    public int age(int id) {
+        return age[id];
+    }
+
+    public String gender(int id) {
+        return genders.decode(genderCode[id]);
+    }
+
+    public int year(int id) {
+        return year[id];
+    }
+
+    public String major(int id) {
+        return majors.decode(majorCode[id]);
+    }
+
+    public int majorCode(int id) {
+        return majorCode[id];
+    }
+
+    public double gpa(int id) {
+        return gpa[id];
+    }
+
+    /**
+     * Returns the id of the assigned roommate.
+     * @param id the student id
+     * @return the roommate id, or -1 if unmatched
+     */
+    public int roommate(int id) {
+        return roommate[id];
+    }
+
+    /**
+     * Sets the roommate of a student in the table, and on its view if views were created.
+     * @param id the student id
+     * @param roommateId the roommate id, or -1 to clear it
+     */
+    public void setRoommate(int id, int roommateId) {
+        roommate[id] = roommateId;
+        if(views != null) {
+            views.get(id).roommate = roommateId < 0 ? null : views.get(roommateId);
+        }
+    }
+
+    /**
+     * Returns the id of the last student with the given name, as name lookups during matching resolve duplicates.
+     * @param name the name to look up
+     * @return the student id, or -1 if no student has that name
+     */
+    public int idOfName(String name) {
+        int code = names.codeOf(name);
+        return code < 0 ? -1 : idOfNameCode[code];
+    }
+
+    public int preferenceCount(int id) {
+        return preferenceStart[id + 1] - preferenceStart[id];
+    }
+
+    /**
+     * Returns the id of the student named at a position of a preference list.
+     * @param id the student id
+     * @param rank the position in the preference list, 0 being the most preferred
+     * @return the preferred student id, or -1 if no student has that name
+     */
+    public int preferenceId(int id, int rank) {
+        int code = preferenceCodes[preferenceStart[id] + rank];
+        return code < idOfNameCode.length ? idOfNameCode[code] : -1;
+    }
+
+    public int internshipCount(int id) {
+        return internshipStart[id + 1] - internshipStart[id];
+    }
+
+    /**
+     * Returns the dictionary code of one internship company.
+     * @param id the student id
+     * @param k the position in the internship list
+     * @return the company code
+     */
+    public int internshipCode(int id, int k) {
+        return internshipCodes[internshipStart[id] + k];
+    }
+
+    public Dictionary getMajors() {
+        return majors;
+    }
+
+    public Dictionary getCompanies() {
+        return companies;
+    }
+
+    public List<String> roommatePreferences(int id) {
+        return codeList(preferenceStart, preferenceCodes, names, id);
+    }
+
+    public List<String> internships(int id) {
+        return codeList(internshipStart, internshipCodes, companies, id);
+    }
+
+    /**
+     * Returns one view per student, in id order, with roommates linked from the table.
+     * The views are created on first use and reused until another student is added.
+     *
+     * @return the student views
+     */
+    public List<UniversityStudent> views() {
+        if(views == null) {
+            List<UniversityStudent> created = new ArrayList<>(size);
+            for(int id=0; id<size; id++) {
+                created.add(new View(this, id));
+            }
+            for(int id=0; id<size; id++) {
+                if(roommate[id] >= 0) {
+                    created.get(id).roommate = created.get(roommate[id]);
+                }
+            }
+            views = Collections.unmodifiableList(created);
+        }
+        return views;
+    }
+
+    /**
+     * Returns the view of one student.
+     * @param id the student id
+     * @return the view
+     */
+    public UniversityStudent view(int id) {
+        return views().get(id);
+    }
+
+    /**
+     * Estimates the heap used by the columns and dictionaries, for comparison with object lists.
+     * @return the approximate size in bytes
+     */
+    public long estimatedBytes() {
+        long bytes = 4L * (nameCode.length + age.length + genderCode.length + year.length + majorCode.length + roommate.length)
+                + 8L * gpa.length + 4L * (preferenceStart.length + preferenceCodes.length + internshipStart.length
+                + internshipCodes.length + idOfNameCode.length);
+        for(Dictionary d : Arrays.asList(names, genders, majors, companies)) {
+            bytes += 4L * (d.values.length + d.slots.length);
+            for(int code=0; code<d.size; code++) {
+                // String header plus its byte array.
+                bytes += 40 + (d.values[code] == null ? 0 : d.values[code].length());
+            }
+        }
+        return bytes;
+    }
+}
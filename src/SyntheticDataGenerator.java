@@ -0,0 +1,294 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Generates large, reproducible student datasets with realistic structure.
+ *
+ * The same seed and settings always produce the same students. Majors come in clusters
+ * (engineering, business, sciences, humanities); each student picks a cluster, then a major
+ * within it, and their year determines their age. Internship companies follow a Zipf
+ * distribution, drawn half of the time from a global ranking and half of the time from a
+ * ranking skewed towards the student's cluster, so popular companies are shared widely
+ * while clusters keep their own favourites. Students are generated in friend groups of two
+ * to four from the same cluster whose preference lists name each other, so most preferences
+ * are reciprocal, followed by an occasional preference for a random student.
+ *
+ * Datasets can be written as DataParser text files or in a compact binary format that
+ * DataParser.parseBinaryStudentTable reads back.
+ */
+public class SyntheticDataGenerator {
+    /** First bytes of every binary dataset. */
+    public static final int BINARY_MAGIC = 0x4C484E44; // "LHND"
+    public static final int BINARY_VERSION = 1;
+
+    private static final String[][] MAJOR_CLUSTERS = {
+        {"Computer Science", "Electrical Engineering", "Mechanical Engineering", "Mathematics", "Physics"},
+        {"Business", "Finance", "Economics", "Marketing"},
+        {"Biology", "Chemistry", "Neuroscience", "Biochemistry"},
+        {"History", "English", "Psychology", "Government", "Philosophy"},
+    };
+    private static final double[] CLUSTER_WEIGHTS = {0.4, 0.25, 0.2, 0.15};
+    private static final String[] KNOWN_COMPANIES = {
+        "Google", "Amazon", "Microsoft", "Apple", "Meta", "Goldman Sachs", "McKinsey", "Tesla",
+        "Dell", "IBM", "Oracle", "Intel", "JPMorgan", "Deloitte", "Pfizer", "Netflix",
+    };
+    private static final String[] FIRST_NAMES = {
+        "Ava", "Ben", "Chloe", "Diego", "Emma", "Farah", "Gabe", "Hana", "Ivan", "Jade",
+        "Kai", "Lena", "Maya", "Noah", "Omar", "Priya", "Quinn", "Ravi", "Sofia", "Theo",
+    };
+    private static final String[] LAST_NAMES = {
+        "Nguyen", "Garcia", "Smith", "Chen", "Patel", "Johnson", "Kim", "Lopez", "Brown", "Singh",
+    };
+    private static final String[] GENDERS = {"Female", "Male", "Nonbinary"};
+
+    private final long seed;
+    private int companies = 500;
+    private double zipfExponent = 1.1;
+    private int maxInternships = 3;
+    private double extraPreferenceRate = 0.2;
+
+    /**
+     * Constructs a generator with the given seed and default distributions.
+     * @param seed the random seed; equal seeds give equal datasets
+     */
+    public SyntheticDataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public void setCompanies(int companies) {
+        if(companies < KNOWN_COMPANIES.length) {
+            throw new IllegalArgumentException("Company count must be at least " + KNOWN_COMPANIES.length + ": " + companies);
+        }
+        this.companies = companies;
+    }
+
+    /**
+     * Sets the Zipf exponent of company popularity; larger values concentrate internships on fewer companies.
+     * @param zipfExponent the exponent, greater than 0
+     */
+    public void setZipfExponent(double zipfExponent) {
+        if(zipfExponent <= 0) {
+            throw new IllegalArgumentException("Zipf exponent must be positive: " + zipfExponent);
+        }
+        this.zipfExponent = zipfExponent;
+    }
+
+    public void setMaxInternships(int maxInternships) {
+        if(maxInternships < 0) {
+            throw new IllegalArgumentException("Max internships must not be negative: " + maxInternships);
+        }
+        this.maxInternships = maxInternships;
+    }
+
+    /**
+     * Sets how often a student adds a preference for a random student outside their group.
+     * @param extraPreferenceRate the probability between 0 and 1
+     */
+    public void setExtraPreferenceRate(double extraPreferenceRate) {
+        if(extraPreferenceRate < 0 || extraPreferenceRate > 1) {
+            throw new IllegalArgumentException("Extra preference rate must be between 0 and 1: " + extraPreferenceRate);
+        }
+        this.extraPreferenceRate = extraPreferenceRate;
+    }
+
+    /**
+     * Receives generated students one at a time, in id order.
+     */
+    public interface StudentSink {
+        void accept(String name, int age, String gender, int year, String major, double gpa,
+                    List<String> roommatePreferences, List<String> internships) throws IOException;
+    }
+
+    /**
+     * Generates the students and hands each to the sink without keeping them in memory.
+     *
+     * @param count the number of students
+     * @param sink the receiver of every student
+     * @throws IOException if the sink fails
+     */
+    public void generate(int count, StudentSink sink) throws IOException {
+        if(count < 0) {
+            throw new IllegalArgumentException("Student count must not be negative: " + count);
+        }
+        Random random = new Random(seed);
+        double[] zipf = zipfCumulative(companies, zipfExponent);
+        int id = 0;
+        while(id < count) {
+            int groupSize = Math.min(count - id, 2 + random.nextInt(3));
+            int cluster = pick(CLUSTER_WEIGHTS, random);
+            for(int member=0; member<groupSize; member++) {
+                int student = id + member;
+                String[] majors = MAJOR_CLUSTERS[cluster];
+                // Earlier majors in a cluster are more popular.
+                String major = majors[Math.min(majors.length - 1, (int) (-Math.log(1 - random.nextDouble()) * majors.length / 3))];
+                int year = 1 + random.nextInt(4);
+                int age = 17 + year + (random.nextInt(10) == 0 ? 1 + random.nextInt(6) : random.nextInt(2));
+                double gpa = Math.round(Math.min(4.0, Math.max(2.0, 3.3 + random.nextGaussian() * 0.4)) * 100) / 100.0;
+
+                List<String> preferences = new ArrayList<>();
+                for(int k=1; k<groupSize; k++) {
+                    preferences.add(nameOf(id + (member + k) % groupSize));
+                }
+                if(count > groupSize && random.nextDouble() < extraPreferenceRate) {
+                    int other = random.nextInt(count);
+                    if(other < id || other >= id + groupSize) {
+                        preferences.add(nameOf(other));
+                    }
+                }
+
+                Set<String> internships = new LinkedHashSet<>();
+                int wanted = random.nextInt(maxInternships + 1);
+                for(int k=0; k<wanted; k++) {
+                    int rank = sample(zipf, random);
+                    if(random.nextBoolean()) {
+                        // Cluster favourites: rotate the ranking so each cluster has its own head.
+                        rank = (rank + cluster * (companies / MAJOR_CLUSTERS.length)) % companies;
+                    }
+                    internships.add(companyName(rank));
+                }
+                sink.accept(nameOf(student), age, GENDERS[random.nextInt(GENDERS.length)], year, major, gpa,
+                        preferences, new ArrayList<>(internships));
+            }
+            id += groupSize;
+        }
+    }
+
+    /**
+     * Generates the students into a StudentTable.
+     * @param count the number of students
+     * @return the generated table
+     */
+    public StudentTable generateTable(int count) {
+        StudentTable table = new StudentTable();
+        try {
+            generate(count, table::add);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return table;
+    }
+
+    /**
+     * Writes a dataset in the DataParser text format.
+     *
+     * @param count the number of students
+     * @param filename the file to create or overwrite
+     * @throws IOException if the file cannot be written
+     */
+    public void writeText(int count, String filename) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(filename)), StandardCharsets.UTF_8), 1 << 16)) {
+            generate(count, (name, age, gender, year, major, gpa, preferences, internships) -> {
+                out.write("Student:\n");
+                out.write("Name: " + name + "\n");
+                out.write("Age: " + age + "\n");
+                out.write("Gender: " + gender + "\n");
+                out.write("Year: " + year + "\n");
+                out.write("Major: " + major + "\n");
+                out.write("GPA: " + gpa + "\n");
+                out.write("RoommatePreferences: " + String.join(", ", preferences) + "\n");
+                out.write("PreviousInternships: " + String.join(", ", internships) + "\n");
+                out.write("\n");
+            });
+        }
+    }
+
+    /**
+     * Writes a dataset in the binary format: magic, version and count, then per student the
+     * name, age, gender, year, major, GPA, preference list and internship list, with strings
+     * in modified UTF-8 and list lengths as ints.
+     *
+     * @param count the number of students
+     * @param filename the file to create or overwrite
+     * @throws IOException if the file cannot be written
+     */
+    public void writeBinary(int count, String filename) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(filename)), 1 << 16))) {
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(BINARY_VERSION);
+            out.writeInt(count);
+            generate(count, (name, age, gender, year, major, gpa, preferences, internships) -> {
+                out.writeUTF(name);
+                out.writeInt(age);
+                out.writeUTF(gender);
+                out.writeInt(year);
+                out.writeUTF(major);
+                out.writeDouble(gpa);
+                out.writeInt(preferences.size());
+                for(String p : preferences) {
+                    out.writeUTF(p);
+                }
+                out.writeInt(internships.size());
+                for(String c : internships) {
+                    out.writeUTF(c);
+                }
+            });
+        }
+    }
+
+    private static String nameOf(int id) {
+        return FIRST_NAMES[id % FIRST_NAMES.length] + " " + LAST_NAMES[(id / FIRST_NAMES.length) % LAST_NAMES.length] + " " + id;
+    }
+
+    private static String companyName(int rank) {
+        return rank < KNOWN_COMPANIES.length ? KNOWN_COMPANIES[rank] : String.format("Company %04d", rank);
+    }
+
+    /**
+     * Returns the cumulative distribution of a Zipf law over ranks 0..n-1.
+     */
+    private static double[] zipfCumulative(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for(int rank=0; rank<n; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for(int rank=0; rank<n; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random) {
+        int i = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, i >= 0 ? i : -i - 1);
+    }
+
+    private static int pick(double[] weights, Random random) {
+        double r = random.nextDouble();
+        for(int i=0; i<weights.length; i++) {
+            r -= weights[i];
+            if(r < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * Writes a dataset.
+     *
+     * @param args student count, output file, optional format (text or binary) and optional seed
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("Usage: java SyntheticDataGenerator <count> <outputFile> [text|binary] [seed]");
+            return;
+        }
+        int count = Integer.parseInt(args[0]);
+        boolean binary = args.length > 2 && args[2].equalsIgnoreCase("binary");
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(args.length > 3 ? Long.parseLong(args[3]) : 42L);
+        long start = System.nanoTime();
+        if(binary) {
+            generator.writeBinary(count, args[1]);
+        }
+        else {
+            generator.writeText(count, args[1]);
+        }
+        System.out.println("Wrote " + count + " students to " + args[1] + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
@@ -0,0 +1,188 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency control for the message tasks (ChatThread, FriendRequestThread).
+ *
+ * One lock exists per task type and the strategy behind it can be switched at runtime:
+ * GLOBAL_SEMAPHORE serialises every task of that type on a single permit (the original
+ * behaviour), STRIPED serialises only tasks from the same sender by hashing senders onto a
+ * fixed set of permits, and LOCK_FREE takes no task-level permit at all and relies on the
+ * shared log being thread-safe. Semaphores can be fair (FIFO) or unfair (barging).
+ *
+ * Every lock reports how many tasks are waiting, the largest queue seen, and wait and hold
+ * time histograms through Metrics.
+ */
+public class TaskLock {
+    /**
+     * Available locking strategies.
+     */
+    public enum Strategy { GLOBAL_SEMAPHORE, STRIPED, LOCK_FREE }
+
+    public static final int DEFAULT_STRIPES = 16;
+
+    private static final Map<String, TaskLock> locks = new ConcurrentHashMap<>();
+    private static volatile Strategy defaultStrategy = Strategy.GLOBAL_SEMAPHORE;
+    private static volatile boolean defaultFair = false;
+
+    private final String taskType;
+    private final Strategy strategy;
+    private final boolean fair;
+    private final Semaphore[] permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAccumulator maxWaiting = new LongAccumulator(Math::max, 0);
+    private final LongAdder acquisitions = new LongAdder();
+    private final Metrics.Histogram waitTime;
+    private final Metrics.Histogram holdTime;
+    private final Metrics.Histogram queueDepth;
+
+    /**
+     * A held permit. Must be released exactly once, in a finally block.
+     */
+    public final class Permit {
+        private final Semaphore semaphore;
+        private final long holdStart;
+
+        private Permit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+            this.holdStart = Metrics.startTimer();
+        }
+
+        public void release() {
+            holdTime.recordSince(holdStart);
+            if(semaphore != null) {
+                semaphore.release();
+            }
+        }
+    }
+
+    /**
+     * Constructs a lock for one task type.
+     *
+     * @param taskType the task type, used to name the metrics, e.g. "chat"
+     * @param strategy the locking strategy
+     * @param fair whether semaphores hand permits out in FIFO order
+     * @param stripes the number of permits used by the STRIPED strategy
+     */
+    public TaskLock(String taskType, Strategy strategy, boolean fair, int stripes) {
+        this.taskType = taskType;
+        this.strategy = strategy;
+        this.fair = fair;
+        int count = strategy == Strategy.STRIPED ? Math.max(1, stripes) : strategy == Strategy.GLOBAL_SEMAPHORE ? 1 : 0;
+        this.permits = new Semaphore[count];
+        for(int i=0; i<count; i++) {
+            permits[i] = new Semaphore(1, fair);
+        }
+        String prefix = taskType + ".lock." + strategy.name().toLowerCase() + (fair ? ".fair" : "");
+        this.waitTime = Metrics.histogram(prefix + ".wait.ns");
+        this.holdTime = Metrics.histogram(prefix + ".hold.ns");
+        this.queueDepth = Metrics.histogram(prefix + ".queue.depth");
+    }
+
+    /**
+     * Returns the shared lock for a task type, created with the default strategy on first use.
+     *
+     * @param taskType the task type, e.g. "chat"
+     * @return the lock currently used by that task type
+     */
+    public static TaskLock forTask(String taskType) {
+        return locks.computeIfAbsent(taskType, t -> new TaskLock(t, defaultStrategy, defaultFair, DEFAULT_STRIPES));
+    }
+
+    /**
+     * Switches every task type to a new strategy. Tasks already holding a permit finish
+     * under the old lock; tasks starting afterwards use the new one.
+     *
+     * @param strategy the strategy to use from now on
+     * @param fair whether semaphores should be fair
+     */
+    public static void configure(Strategy strategy, boolean fair) {
+        defaultStrategy = strategy;
+        defaultFair = fair;
+        locks.clear();
+    }
+
+    /**
+     * Waits for the permit guarding this sender.
+     *
+     * @param sender the student sending the message
+     * @return the held permit
+     * @throws InterruptedException if interrupted while waiting; no permit is held then
+     */
+    public Permit acquire(UniversityStudent sender) throws InterruptedException {
+        acquisitions.increment();
+        if(permits.length == 0) {
+            return new Permit(null);
+        }
+        Semaphore semaphore = permits.length == 1 ? permits[0] : permits[stripeOf(sender)];
+        // The untimed tryAcquire barges even on a fair semaphore; the timed one honours the queue.
+        if(fair ? semaphore.tryAcquire(0, TimeUnit.SECONDS) : semaphore.tryAcquire()) {
+            waitTime.record(0);
+            return new Permit(semaphore);
+        }
+
+        long waitStart = Metrics.startTimer();
+        int depth = waiting.incrementAndGet();
+        maxWaiting.accumulate(depth);
+        queueDepth.record(depth);
+        try {
+            semaphore.acquire();
+        }
+        finally {
+            waiting.decrementAndGet();
+        }
+        waitTime.recordSince(waitStart);
+        return new Permit(semaphore);
+    }
+
+    private int stripeOf(UniversityStudent sender) {
+        int h = System.identityHashCode(sender);
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % permits.length;
+    }
+
+    public String getTaskType() {
+        return taskType;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public boolean isFair() {
+        return fair;
+    }
+
+    /**
+     * Returns the number of tasks currently blocked waiting for a permit.
+     * @return the current queue depth
+     */
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    /**
+     * Returns the largest number of tasks seen waiting at once.
+     * @return the peak queue depth
+     */
+    public long getMaxQueueDepth() {
+        return maxWaiting.get();
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public Metrics.Histogram getWaitTime() {
+        return waitTime;
+    }
+
+    public Metrics.Histogram getHoldTime() {
+        return holdTime;
+    }
+}
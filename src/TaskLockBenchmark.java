@@ -0,0 +1,98 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Contention benchmark for the TaskLock strategies.
+ * For every strategy and fairness mode, submits a growing number of ChatThread and
+ * FriendRequestThread tasks from a pool of senders to a fixed thread pool and reports
+ * throughput, and for the chat lock and the friend request lock separately, peak queue
+ * depth and wait/hold percentiles. Task output is discarded while measuring so console
+ * I/O does not dominate the numbers.
+ *
+ * Usage: java TaskLockBenchmark [threads] [senders] [taskCounts...]
+ */
+public class TaskLockBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        int senderCount = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        List<Integer> taskCounts = new ArrayList<>();
+        for(int i=2; i<args.length; i++) {
+            taskCounts.add(Integer.parseInt(args[i]));
+        }
+        if(taskCounts.isEmpty()) {
+            taskCounts.addAll(Arrays.asList(1000, 10000, 100000));
+        }
+
+        List<UniversityStudent> senders = new ArrayList<>();
+        for(int i=0; i<senderCount; i++) {
+            senders.add(new UniversityStudent("Sender" + i, 20, "Other", 2, "Computer Science", 3.5,
+                    new ArrayList<>(), new ArrayList<>()));
+        }
+
+        boolean metricsWereEnabled = Metrics.isEnabled();
+        Metrics.setEnabled(true);
+        PrintStream console = System.out;
+        System.out.println(String.format("%-18s %-6s %8s %12s %-6s %9s %12s %12s %12s",
+                "strategy", "fair", "tasks", "tasks/s", "lock", "maxQueue", "wait p50", "wait p99", "hold p99"));
+        try {
+            for(TaskLock.Strategy strategy : TaskLock.Strategy.values()) {
+                for(boolean fair : new boolean[] {false, true}) {
+                    if(strategy == TaskLock.Strategy.LOCK_FREE && fair) {
+                        continue;
+                    }
+                    for(int tasks : taskCounts) {
+                        Metrics.reset();
+                        TaskLock.configure(strategy, fair);
+                        Main.executionLogs.clear();
+
+                        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                        long elapsed;
+                        try {
+                            elapsed = run(threads, senders, tasks);
+                        }
+                        finally {
+                            System.setOut(console);
+                        }
+
+                        for(String taskType : new String[] {"chat", "friend"}) {
+                            TaskLock lock = TaskLock.forTask(taskType);
+                            Metrics.Histogram wait = lock.getWaitTime();
+                            console.println(String.format("%-18s %-6s %8d %12.0f %-6s %9d %10.3fms %10.3fms %10.3fms",
+                                    strategy, fair, tasks, tasks / (elapsed / 1e9), taskType, lock.getMaxQueueDepth(),
+                                    wait.getPercentile(50) / 1e6, wait.getPercentile(99) / 1e6,
+                                    lock.getHoldTime().getPercentile(99) / 1e6));
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            TaskLock.configure(TaskLock.Strategy.GLOBAL_SEMAPHORE, false);
+            Main.executionLogs.clear();
+            Metrics.reset();
+            Metrics.setEnabled(metricsWereEnabled);
+        }
+    }
+
+    /**
+     * Runs the given number of tasks, alternating chats and friend requests, and returns the elapsed nanoseconds.
+     */
+    private static long run(int threads, List<UniversityStudent> senders, int tasks) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for(int i=0; i<tasks; i++) {
+            UniversityStudent sender = senders.get(random.nextInt(senders.size()));
+            UniversityStudent receiver = senders.get(random.nextInt(senders.size()));
+            executor.submit(i % 2 == 0 ? new ChatThread(sender, receiver, "Message " + i) : new FriendRequestThread(sender, receiver));
+        }
+        executor.shutdown();
+        if(!executor.awaitTermination(5, TimeUnit.MINUTES)) {
+            executor.shutdownNow();
+            throw new IllegalStateException("Benchmark tasks did not finish in time.");
+        }
+        return System.nanoTime() - start;
+    }
+}